@@ -0,0 +1,46 @@
+#!/bin/sh
+# Runs products.js against the application once on platform threads and once on virtual threads.
+# Usage: TOKEN=<jwt> SPRING_DATA_MONGODB_URI=<uri> ./compare.sh [path/to/app.jar]
+# STARTUP_TIMEOUT (seconds, 180 by default) bounds the wait for each application start.
+set -eu
+
+JAR=${1:-../target/ecommerce-0.0.1-SNAPSHOT.jar}
+PORT=${PORT:-8080}
+OUT=${OUT:-results}
+STARTUP_TIMEOUT=${STARTUP_TIMEOUT:-180}
+mkdir -p "$OUT"
+
+# Waits up to STARTUP_TIMEOUT seconds for the health endpoint, gives up early if the application exits
+wait_for_app() {
+  WAITED=0
+  until curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; do
+    if ! kill -0 "$APP" 2>/dev/null; then
+      echo "The application exited during startup, last lines of $OUT/app-virtual-$VIRTUAL.log:" >&2
+      tail -n 50 "$OUT/app-virtual-$VIRTUAL.log" >&2
+      exit 1
+    fi
+    if [ "$WAITED" -ge "$STARTUP_TIMEOUT" ]; then
+      echo "The application did not become healthy within ${STARTUP_TIMEOUT}s, last lines of $OUT/app-virtual-$VIRTUAL.log:" >&2
+      tail -n 50 "$OUT/app-virtual-$VIRTUAL.log" >&2
+      exit 1
+    fi
+    sleep 1
+    WAITED=$((WAITED + 1))
+  done
+}
+
+for VIRTUAL in false true; do
+  echo "== spring.threads.virtual.enabled=$VIRTUAL"
+  SPRING_THREADS_VIRTUAL_ENABLED=$VIRTUAL java ${JAVA_OPTS:-} -jar "$JAR" --server.port="$PORT" > "$OUT/app-virtual-$VIRTUAL.log" 2>&1 &
+  APP=$!
+  trap 'kill $APP 2>/dev/null' EXIT
+  wait_for_app
+
+  k6 run -e BASE_URL="http://localhost:$PORT" -e TOKEN="$TOKEN" \
+    --summary-export "$OUT/summary-virtual-$VIRTUAL.json" products.js
+
+  kill $APP
+  wait $APP 2>/dev/null || true
+done
+
+echo "Summaries in $OUT/summary-virtual-false.json and $OUT/summary-virtual-true.json"
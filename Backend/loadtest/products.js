@@ -0,0 +1,58 @@
+// k6 load test of the product read paths, see README.md
+//   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<jwt> products.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const TOKEN = __ENV.TOKEN;
+const PEAK_VUS = parseInt(__ENV.PEAK_VUS || '1000', 10);
+
+export const options = {
+  scenarios: {
+    browse: {
+      executor: 'ramping-vus',
+      startVUs: 0,
+      stages: [
+        { duration: '30s', target: PEAK_VUS / 4 },
+        { duration: '30s', target: PEAK_VUS / 2 },
+        { duration: '1m', target: PEAK_VUS },
+        { duration: '1m', target: PEAK_VUS },
+        { duration: '15s', target: 0 },
+      ],
+      gracefulRampDown: '10s',
+    },
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+  },
+  summaryTrendStats: ['avg', 'med', 'p(90)', 'p(95)', 'p(99)', 'max'],
+};
+
+const auth = () => ({ headers: { Authorization: `Bearer ${TOKEN}` } });
+
+export function setup() {
+  if (!TOKEN) {
+    throw new Error('Set TOKEN to a JWT from POST /api/auth/login');
+  }
+  const res = http.get(`${BASE_URL}/api/products?limit=100`, auth());
+  const ids = res.json('items').map((p) => p.id);
+  if (ids.length === 0) {
+    throw new Error('No products to test with, load some through POST /api/products/bulk');
+  }
+  return { ids };
+}
+
+export default function (data) {
+  const id = data.ids[Math.floor(Math.random() * data.ids.length)];
+  const roll = Math.random();
+  let res;
+  if (roll < 0.5) {
+    // Image bytes are streamed from the image store, the slowest request per byte
+    res = http.get(`${BASE_URL}/api/product/${id}/image?size=medium`, { tags: { name: 'image' } });
+  } else if (roll < 0.8) {
+    res = http.get(`${BASE_URL}/api/product/${id}`, Object.assign(auth(), { tags: { name: 'product' } }));
+  } else {
+    res = http.get(`${BASE_URL}/api/products/browse?limit=20`, Object.assign(auth(), { tags: { name: 'browse' } }));
+  }
+  check(res, { 'status is 200': (r) => r.status === 200 });
+}
@@ -0,0 +1,59 @@
+package com.rohit.ecommerce.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rohit.ecommerce.model.AuthPrincipal;
+import com.rohit.ecommerce.service.AuthService;
+
+/**
+ * JWT issuing and checking, the work AuthInterceptor does on every protected request.
+ * verifyUncached is a token seen for the first time (signature check), verifyCached a repeat request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthBenchmark {
+
+    private AuthService cached;
+    private AuthService uncached;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cached = new AuthService(100_000);
+        // Evictions run on the calling thread, so a cache of size 0 drops every entry right away and each call
+        // parses the token. With the default asynchronous maintenance nearly every call would be a hit.
+        uncached = new AuthService(0, Runnable::run);
+        token = cached.generateJwtToken("buyer@example.com");
+        cached.verifyToken(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cached.generateJwtToken("buyer@example.com");
+    }
+
+    @Benchmark
+    public AuthPrincipal verifyCached() {
+        return cached.verifyToken(token);
+    }
+
+    @Benchmark
+    public AuthPrincipal verifyUncached() {
+        return uncached.verifyToken(token);
+    }
+}
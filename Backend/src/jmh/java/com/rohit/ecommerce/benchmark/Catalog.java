@@ -0,0 +1,84 @@
+package com.rohit.ecommerce.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.rohit.ecommerce.model.ImageRendition;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.repo.ProductRepo;
+
+/**
+ * Generated products for the benchmarks. The same seed always gives the same catalog, so runs can be compared.
+ */
+final class Catalog {
+
+    static final String[] CATEGORIES = { "Mobile", "Laptop", "Headphones", "Camera", "Tablet", "Watch", "Speaker", "Monitor" };
+    static final String[] BRANDS = { "Samsung", "Apple", "Sony", "Lenovo", "Dell", "Xiaomi", "Canon", "Bose", "Asus", "Huawei" };
+    static final String[] WORDS = { "wireless", "pro", "max", "ultra", "lite", "smart", "noise", "cancelling", "gaming",
+            "portable", "4k", "oled", "fast", "charging", "waterproof", "bluetooth", "premium", "slim", "battery", "zoom" };
+
+    private Catalog() {
+    }
+
+    static List<Product> products(int size) {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(product(random, i));
+        }
+        return products;
+    }
+
+    static Product product(Random random, int i) {
+        Product product = new Product();
+        product.setId(String.format("%024x", i));
+        product.setBrand(BRANDS[random.nextInt(BRANDS.length)]);
+        product.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        product.setName(product.getBrand() + " " + words(random, 2) + " " + (i % 1000));
+        product.setDescription(words(random, 25));
+        product.setPrice(BigDecimal.valueOf(random.nextInt(200_000), 2));
+        product.setReleaseDate(new Date(1_600_000_000_000L + random.nextInt(100_000) * 60_000L));
+        product.setAvailable(random.nextBoolean());
+        product.setStockQuantity(random.nextInt(500));
+        product.setVersion(1L + random.nextInt(10));
+        product.setImageName("product-" + i + ".jpg");
+        product.setImageType("image/jpeg");
+        product.setImageId(String.format("%024x", 1_000_000 + i));
+        product.setImageHash(String.format("%064x", i));
+        product.setImageUploadedAt(product.getReleaseDate());
+        product.setImageRenditions(Map.of(
+                ImageRendition.THUMBNAIL, new ImageRendition(product.getImageId() + "t", "image/jpeg", product.getImageHash(), product.getReleaseDate(), 200, 150),
+                ImageRendition.MEDIUM, new ImageRendition(product.getImageId() + "m", "image/jpeg", product.getImageHash(), product.getReleaseDate(), 600, 450)));
+        return product;
+    }
+
+    /**
+     * In-process stand-in for the MongoDB repository: streamAllBy serves the given products, other methods are not supported
+     */
+    static ProductRepo repo(List<Product> products) {
+        return (ProductRepo) Proxy.newProxyInstance(ProductRepo.class.getClassLoader(), new Class<?>[] { ProductRepo.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "streamAllBy" -> products.stream();
+                    case "toString" -> "Catalog.repo(" + products.size() + ")";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package com.rohit.ecommerce.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rohit.ecommerce.storage.FileSystemImageStore;
+import com.rohit.ecommerce.storage.ImageHashes;
+
+/**
+ * Upload and download of product images at typical sizes through the filesystem image store:
+ * storing while hashing (as ProductService does on upload) and streaming a stored image out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageStoreBenchmark {
+
+    // Thumbnail, product photo, large camera upload
+    @Param({ "20480", "512000", "5242880" })
+    public int imageSize;
+
+    private Path directory;
+    private FileSystemImageStore store;
+    private byte[] image;
+    private String storedId;
+    private final byte[] buffer = new byte[8192];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("image-benchmark");
+        store = new FileSystemImageStore(directory.toString());
+        image = new byte[imageSize];
+        new Random(42).nextBytes(image);
+        storedId = store.store(new ByteArrayInputStream(image), "photo.jpg", "image/jpeg");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String storeWithHash() throws IOException {
+        DigestInputStream in = new DigestInputStream(new ByteArrayInputStream(image), ImageHashes.newDigest());
+        String id = store.store(in, "photo.jpg", "image/jpeg");
+        store.delete(id);
+        return ImageHashes.toHex(in.getMessageDigest()) + id;
+    }
+
+    @Benchmark
+    public long streamOut() throws IOException {
+        long total = 0;
+        try (InputStream in = store.load(storedId).getInputStream(); OutputStream out = OutputStream.nullOutputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                total += read;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,94 @@
+package com.rohit.ecommerce.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductPage;
+import com.rohit.ecommerce.model.ProductSort;
+import com.rohit.ecommerce.model.ProductSummary;
+import com.rohit.ecommerce.search.ProductSearchIndex;
+import com.rohit.ecommerce.search.ProductSuggester;
+import com.rohit.ecommerce.search.Suggestion;
+import com.rohit.ecommerce.service.ProductService;
+
+/**
+ * ProductService.searchProducts and the paged search over the in-memory index, plus a full index rebuild.
+ * suggest is the typeahead lookup in ProductSuggester, sampled so the report has its p99.
+ * The index is loaded from Catalog.repo, the in-process stand-in for the products collection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int catalogSize;
+
+    // A frequent word, a prefix and two words that must both match
+    @Param({ "wireless", "cha", "apple pro" })
+    public String keyword;
+
+    private ProductSearchIndex index;
+    private ProductSuggester suggester;
+    private ProductService service;
+
+    @Setup
+    public void setUp() {
+        List<Product> products = Catalog.products(catalogSize);
+        index = new ProductSearchIndex();
+        ReflectionTestUtils.setField(index, "repo", Catalog.repo(products));
+        index.rebuild();
+        suggester = new ProductSuggester();
+        ReflectionTestUtils.setField(suggester, "repo", Catalog.repo(products));
+        ReflectionTestUtils.setField(suggester, "maxSize", 10);
+        suggester.rebuild();
+        service = new ProductService();
+        ReflectionTestUtils.setField(service, "searchIndex", index);
+        ReflectionTestUtils.setField(service, "suggester", suggester);
+        ReflectionTestUtils.setField(service, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(service, "maxPageSize", 100);
+    }
+
+    @Benchmark
+    public List<ProductSummary> searchProducts() {
+        return service.searchProducts(keyword);
+    }
+
+    @Benchmark
+    public ProductPage searchFirstPage() {
+        return service.searchProductPage(keyword, ProductSort.RELEVANCE, Sort.Direction.DESC, 20, null);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public List<Suggestion> suggest() {
+        return service.suggest(keyword, 10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public ProductSearchIndex rebuild() {
+        index.rebuild();
+        return index;
+    }
+}
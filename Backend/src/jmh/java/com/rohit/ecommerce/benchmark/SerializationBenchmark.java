@@ -0,0 +1,129 @@
+package com.rohit.ecommerce.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.rohit.ecommerce.model.ImageRendition;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductPage;
+import com.rohit.ecommerce.model.ProductSummary;
+
+/**
+ * JSON writing and reading of the product responses: one full Product (BigDecimal price, Dates, image renditions),
+ * a 20 item ProductPage, and the unpaged /api/products summary list at catalogSize.
+ * Image bytes are no longer part of Product, they are streamed from the image store (see ImageStoreBenchmark).
+ *
+ * format compares the output before JacksonConfig (baseline: reflection, nulls and image store fields written)
+ * with what is served now: lean JSON (Blackbird, no nulls, no image store fields) and the same as Smile and CBOR.
+ * writeCatalogSummariesGzip adds the cost of the gzip that server.compression applies to JSON responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int catalogSize;
+
+    @Param({ "baseline", "lean", "smile", "cbor" })
+    public String format;
+
+    private ObjectMapper objectMapper;
+    private Product product;
+    private byte[] productJson;
+    private ProductPage page;
+    private List<ProductSummary> summaries;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = mapper(format);
+        List<Product> products = Catalog.products(catalogSize);
+        product = products.get(0);
+        productJson = objectMapper.writeValueAsBytes(product);
+        summaries = products.stream().map(ProductSummary::of).toList();
+        page = new ProductPage(summaries.subList(0, 20), "bmFtZQpBU0MKMDAwMDAwMDAwMDAwMDAwMDAwMDAwMDE0Cj1TYW1zdW5n");
+    }
+
+    @Benchmark
+    public byte[] writeProduct() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public Product readProduct() throws Exception {
+        return objectMapper.readValue(productJson, Product.class);
+    }
+
+    @Benchmark
+    public byte[] writePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] writeCatalogSummaries() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(summaries);
+    }
+
+    @Benchmark
+    public byte[] writeCatalogSummariesGzip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, summaries);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Configured like the ObjectMapper Spring Boot gives the MVC message converters, see JacksonConfig
+    static ObjectMapper mapper(String format) {
+        return switch (format) {
+            case "baseline" -> Jackson2ObjectMapperBuilder.json().mixIn(Product.class, FullProduct.class).build();
+            case "lean" -> lean().build();
+            case "smile" -> lean().factory(new SmileFactory()).build();
+            case "cbor" -> lean().factory(new CBORFactory()).build();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+    }
+
+    private static Jackson2ObjectMapperBuilder lean() {
+        return Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .modulesToInstall(new BlackbirdModule());
+    }
+
+    // Writes the image store fields again, as Product did before they were marked @JsonIgnore
+    abstract static class FullProduct {
+
+        @JsonIgnore(false)
+        String imageId;
+
+        @JsonIgnore(false)
+        Map<String, ImageRendition> imageRenditions;
+    }
+}
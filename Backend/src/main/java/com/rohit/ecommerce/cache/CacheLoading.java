@@ -0,0 +1,106 @@
+package com.rohit.ecommerce.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+/**
+ * Read-through lookup that runs the loader on the calling thread, outside of any lock.
+ *
+ * Cache.get(key, loader) runs the loader inside ConcurrentHashMap.compute, which holds a monitor.
+ * A virtual thread blocked on MongoDB in there stays pinned to its carrier thread (JDK 21), and enough
+ * concurrent misses stall every request. Here a placeholder future is published first and the load
+ * happens after, concurrent callers for the same key wait on that future. An invalidate during the
+ * load drops the placeholder, so the loaded value is returned but not cached.
+ */
+final class CacheLoading {
+
+    private CacheLoading() {
+    }
+
+    /**
+     * @param loader May return null, which is returned and not cached
+     */
+    static <K, V> V get(AsyncCache<K, V> cache, K key, Function<? super K, ? extends V> loader) {
+        // getIfPresent records the hit or miss statistics
+        CompletableFuture<V> future = cache.getIfPresent(key);
+        if (future == null) {
+            CompletableFuture<V> placeholder = new CompletableFuture<>();
+            future = cache.asMap().putIfAbsent(key, placeholder);
+            if (future == null) {
+                try {
+                    V value = loader.apply(key);
+                    // Caffeine removes entries whose future completes with null or an exception
+                    placeholder.complete(value);
+                    return value;
+                } catch (RuntimeException | Error e) {
+                    placeholder.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        return join(future);
+    }
+
+    /**
+     * Bulk variant of get: the keys that are neither cached nor being loaded by another caller are loaded
+     * with one call of bulkLoader, the others are taken from the cache or waited for.
+     * @param bulkLoader Gets the missing keys, returns the values found (keys without a value are not cached)
+     * @return The values found, keys without a value are left out
+     */
+    static <K, V> Map<K, V> getAll(AsyncCache<K, V> cache, Collection<K> keys,
+                                   Function<? super Set<K>, ? extends Map<K, ? extends V>> bulkLoader) {
+        Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> placeholders = new LinkedHashMap<>();
+        for (K key : keys) {
+            if (futures.containsKey(key)) {
+                continue;
+            }
+            CompletableFuture<V> future = cache.getIfPresent(key);
+            if (future == null) {
+                CompletableFuture<V> placeholder = new CompletableFuture<>();
+                future = cache.asMap().putIfAbsent(key, placeholder);
+                if (future == null) {
+                    placeholders.put(key, placeholder);
+                    future = placeholder;
+                }
+            }
+            futures.put(key, future);
+        }
+        if (!placeholders.isEmpty()) {
+            try {
+                Map<K, ? extends V> loaded = bulkLoader.apply(Collections.unmodifiableSet(placeholders.keySet()));
+                placeholders.forEach((key, placeholder) -> placeholder.complete(loaded.get(key)));
+            } catch (RuntimeException | Error e) {
+                placeholders.values().forEach(placeholder -> placeholder.completeExceptionally(e));
+                throw e;
+            }
+        }
+        Map<K, V> values = new LinkedHashMap<>();
+        futures.forEach((key, future) -> {
+            V value = join(future);
+            if (value != null) {
+                values.put(key, value);
+            }
+        });
+        return values;
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.rohit.ecommerce.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.rohit.ecommerce.event.CatalogChangedEvent;
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.ProductSummary;
+import com.rohit.ecommerce.repo.ProductRepo;
+
+import lombok.Getter;
+
+/**
+ * The unpaged product listing (GET /api/products) kept ready to send: a JSON array of ProductSummary
+ * as bytes, gzipped on first demand, with an ETag derived from the content.
+ *
+ * Every product is kept serialized on its own, so a ProductChangedEvent re-serializes one product only.
+ * A stock change patches the stored bytes of its product outside the monitor and only swaps them in under it.
+ * The array is put together again from those bytes on the first request after a change, at most once per
+ * app.catalog.snapshot.max-age, so a burst of stock updates doesn't reassemble it for every request.
+ * While one request assembles, the others keep getting the previous listing.
+ *
+ * Loaded from MongoDB once (at startup, or on the first request) and rebuilt on CatalogChangedEvent.
+ */
+@Component
+public class CatalogSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+    @Autowired
+    private ProductRepo repo;
+
+    @Value("${app.catalog.snapshot.preload-on-startup:true}")
+    private boolean preloadOnStartup;
+
+    @Value("${app.catalog.snapshot.max-age:1s}")
+    private Duration maxAge;
+
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    // A lock instead of a monitor: loading blocks on MongoDB, which would pin a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    // Product id -> serialized ProductSummary, in id order (the order products were created in)
+    private volatile ConcurrentSkipListMap<String, byte[]> products = new ConcurrentSkipListMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile Listing listing;
+    private volatile boolean loaded;
+    // Ids written while a rebuild streams the collection, re-applied before the rebuilt map is swapped in
+    private Set<String> changedDuringRebuild;
+
+    public CatalogSnapshot(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writerFor(ProductSummary.class);
+        this.reader = objectMapper.readerFor(ProductSummary.class);
+    }
+
+    /**
+     * @return The current listing, or one at most app.catalog.snapshot.max-age behind it
+     */
+    public Listing listing() {
+        ensureLoaded();
+        Listing current = listing;
+        if (current != null && (current.version == version.get()
+                || System.nanoTime() - current.assembledAt < maxAge.toNanos())) {
+            return current;
+        }
+        if (current != null && !lock.tryLock()) {
+            return current;
+        }
+        if (current == null) {
+            lock.lock();
+        }
+        try {
+            current = listing;
+            if (current == null || current.version != version.get()) {
+                current = assemble();
+                listing = current;
+            }
+            return current;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public synchronized void put(ProductSummary summary) {
+        products.put(summary.getId(), serialize(summary));
+        changed(summary.getId());
+    }
+
+    /**
+     * Sets the stock of a product in the listing
+     * @return false if the product isn't in the listing while it is being rebuilt, it has to be put as a whole then
+     */
+    public boolean updateStock(String productId, int stockQuantity, boolean available) {
+        while (true) {
+            ConcurrentSkipListMap<String, byte[]> current = products;
+            byte[] old = current.get(productId);
+            if (old == null) {
+                synchronized (this) {
+                    if (current != products) {
+                        continue;
+                    }
+                    return changedDuringRebuild == null;
+                }
+            }
+            ProductSummary summary = deserialize(old);
+            summary.setStockQuantity(stockQuantity);
+            summary.setAvailable(available);
+            byte[] updated = serialize(summary);
+            synchronized (this) {
+                // Lost to a concurrent change or a rebuild swapping the map, start over from the new bytes
+                if (current == products && current.replace(productId, old, updated)) {
+                    changed(productId);
+                    return true;
+                }
+            }
+        }
+    }
+
+    public synchronized void remove(String productId) {
+        products.remove(productId);
+        changed(productId);
+    }
+
+    /**
+     * Reloads every product from MongoDB. Requests keep getting the previous listing until the new one is complete.
+     */
+    public void rebuild() {
+        lock.lock();
+        try {
+            doRebuild();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void changed(String productId) {
+        version.incrementAndGet();
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(productId);
+        }
+    }
+
+    private void doRebuild() {
+        synchronized (this) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        ConcurrentSkipListMap<String, byte[]> rebuilt = new ConcurrentSkipListMap<>();
+        try (Stream<ProductSummary> summaries = repo.streamAllSummaries()) {
+            summaries.forEach(summary -> rebuilt.put(summary.getId(), serialize(summary)));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            // The live map already holds the latest version of anything written meanwhile
+            for (String id : changedDuringRebuild) {
+                byte[] latest = products.get(id);
+                if (latest != null) {
+                    rebuilt.put(id, latest);
+                } else {
+                    rebuilt.remove(id);
+                }
+            }
+            changedDuringRebuild = null;
+            products = rebuilt;
+            version.incrementAndGet();
+            loaded = true;
+        }
+        log.info("Catalog snapshot built with {} products", rebuilt.size());
+    }
+
+    private Listing assemble() {
+        long assembledVersion = version.get();
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        json.write('[');
+        boolean first = true;
+        for (byte[] product : products.values()) {
+            if (!first) {
+                json.write(',');
+            }
+            first = false;
+            json.writeBytes(product);
+        }
+        json.write(']');
+        return new Listing(assembledVersion, json.toByteArray());
+    }
+
+    private byte[] serialize(ProductSummary summary) {
+        try {
+            return writer.writeValueAsBytes(summary);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize product " + summary.getId(), e);
+        }
+    }
+
+    private ProductSummary deserialize(byte[] product) {
+        try {
+            return reader.readValue(product);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read a stored product", e);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            lock.lock();
+            try {
+                if (!loaded) {
+                    doRebuild();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (!preloadOnStartup) {
+            return;
+        }
+        try {
+            rebuild();
+            listing();
+        } catch (RuntimeException e) {
+            // The first request retries the load
+            log.error("Could not preload the catalog snapshot", e);
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            remove(event.getProductId());
+            return;
+        }
+        if (event.getType() == ProductChangedEvent.Type.STOCK
+                && updateStock(event.getProductId(), event.getStockQuantity(), event.getAvailable())) {
+            return;
+        }
+        ProductSummary summary = event.getProduct() != null ? ProductSummary.of(event.getProduct())
+                : repo.findById(event.getProductId()).map(ProductSummary::of).orElse(null);
+        if (summary != null) {
+            put(summary);
+        } else {
+            remove(event.getProductId());
+        }
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // Stale until the next request loads it again
+            loaded = false;
+            log.error("Could not rebuild the catalog snapshot after {}", event.getReason(), e);
+        }
+    }
+
+    /**
+     * One assembled listing. Immutable apart from the gzipped copy, which is made once on first use.
+     */
+    public static final class Listing {
+
+        private final long version;
+        private final long assembledAt = System.nanoTime();
+        @Getter
+        private final byte[] json;
+        @Getter
+        private final String etag;
+        private volatile byte[] gzip;
+
+        Listing(long version, byte[] json) {
+            this.version = version;
+            this.json = json;
+            this.etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+        }
+
+        public byte[] getGzip() {
+            byte[] compressed = gzip;
+            if (compressed == null) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 64);
+                try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+                    out.write(json);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                compressed = bytes.toByteArray();
+                gzip = compressed;
+            }
+            return compressed;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.rohit.ecommerce.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rohit.ecommerce.event.CatalogChangedEvent;
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.Product;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Read-through cache of Product documents by id, in front of ProductRepo.
+ *
+ * Bounded by the estimated heap size of the cached products (app.cache.products.max-bytes)
+ * and by age (app.cache.products.ttl). Caffeine evicts with W-TinyLFU, so a burst of one-off
+ * reads does not push the hot products out. Entries are dropped on every ProductChangedEvent, except that
+ * a stock change replaces the cached product with a copy carrying the new stock, so a product that sells fast
+ * is not reloaded after every reservation.
+ * Hit, miss and eviction counts are published as the cache.* metrics with cache=products.
+ *
+ * Cached products are shared between requests and must not be modified.
+ */
+@Component
+public class ProductCache {
+
+    // Rough per-object overhead of a Product with its BigDecimal and Date
+    private static final int BASE_WEIGHT = 256;
+
+    private final AsyncCache<String, Product> cache;
+
+    public ProductCache(MeterRegistry meterRegistry,
+                        @Value("${app.cache.products.max-bytes:33554432}") long maxBytes,
+                        @Value("${app.cache.products.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(ProductCache::weigh)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "products");
+    }
+
+    /**
+     * @param loader Called on a miss, may return null when the product does not exist (nothing is cached then)
+     */
+    public Product get(String id, Function<String, Product> loader) {
+        return CacheLoading.get(cache, id, loader);
+    }
+
+    /**
+     * @param loader Called once with the ids that are not cached, returns the products found by id
+     * @return The products found by id, in the order of ids, without the ids that don't exist
+     */
+    public Map<String, Product> getAll(Collection<String> ids, Function<Set<String>, Map<String, Product>> loader) {
+        return CacheLoading.getAll(cache, ids, loader);
+    }
+
+    /**
+     * @return The cached products among ids, without loading the others
+     */
+    public Map<String, Product> getAllPresent(Collection<String> ids) {
+        return cache.synchronous().getAllPresent(ids);
+    }
+
+    public void invalidate(String id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.STOCK) {
+            updateStock(event);
+        } else {
+            invalidate(event.getProductId());
+        }
+    }
+
+    private void updateStock(ProductChangedEvent event) {
+        CompletableFuture<Product> entry = cache.getIfPresent(event.getProductId());
+        if (entry == null) {
+            return;
+        }
+        Product cached = entry.isDone() && !entry.isCompletedExceptionally() ? entry.getNow(null) : null;
+        if (cached == null) {
+            // Still loading, the load may have read the stock from before this change
+            invalidate(event.getProductId());
+            return;
+        }
+        if (cached.getVersion() != null && event.getVersion() != null && cached.getVersion() >= event.getVersion()) {
+            // An event that arrived after a later one
+            return;
+        }
+        Product updated = cached.toBuilder()
+                .stockQuantity(event.getStockQuantity())
+                .available(event.getAvailable())
+                .version(event.getVersion())
+                .build();
+        if (!cache.asMap().replace(event.getProductId(), entry, CompletableFuture.completedFuture(updated))) {
+            invalidate(event.getProductId());
+        }
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        invalidateAll();
+    }
+
+    private static int weigh(String id, Product product) {
+        long chars = length(id) + length(product.getName()) + length(product.getDescription())
+                + length(product.getBrand()) + length(product.getCategory()) + length(product.getImageName())
+                + length(product.getImageType()) + length(product.getImageId());
+        return (int) Math.min(Integer.MAX_VALUE, BASE_WEIGHT + 2 * chars);
+    }
+
+    private static long length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
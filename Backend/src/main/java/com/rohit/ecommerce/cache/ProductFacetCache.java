@@ -0,0 +1,54 @@
+package com.rohit.ecommerce.cache;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rohit.ecommerce.event.CatalogChangedEvent;
+import com.rohit.ecommerce.model.ProductFacets;
+import com.rohit.ecommerce.model.ProductFilter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Facet counts by browse filter, so the popular filter combinations don't run the aggregation on every request.
+ *
+ * Single product writes don't clear it: stock reservations alone would empty it many times a second.
+ * Counts may lag behind by up to app.browse.facets.ttl instead; a bulk import clears everything.
+ * Published as the cache.* metrics with cache=productFacets.
+ */
+@Component
+public class ProductFacetCache {
+
+    private final AsyncCache<ProductFilter, ProductFacets> cache;
+
+    public ProductFacetCache(MeterRegistry meterRegistry,
+                             @Value("${app.browse.facets.max-size:1000}") long maxSize,
+                             @Value("${app.browse.facets.ttl:30s}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "productFacets");
+    }
+
+    public ProductFacets get(ProductFilter filter, Function<ProductFilter, ProductFacets> loader) {
+        return CacheLoading.get(cache, filter, loader);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        invalidateAll();
+    }
+}
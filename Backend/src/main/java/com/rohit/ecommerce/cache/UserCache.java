@@ -0,0 +1,61 @@
+package com.rohit.ecommerce.cache;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rohit.ecommerce.event.UserChangedEvent;
+import com.rohit.ecommerce.model.User;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Read-through cache of users by email for the login path, so repeated logins of the same accounts
+ * don't each query MongoDB. Emails that aren't registered are not cached.
+ * AuthService invalidates an entry when it writes the user, writes made elsewhere arrive as UserChangedEvent.
+ * Published as the cache.* metrics with cache=users.
+ *
+ * Cached users are shared between requests and must not be modified.
+ */
+@Component
+public class UserCache {
+
+    private final AsyncCache<String, User> cache;
+
+    public UserCache(MeterRegistry meterRegistry,
+                     @Value("${app.cache.users.max-size:10000}") long maxSize,
+                     @Value("${app.cache.users.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "users");
+    }
+
+    /**
+     * @param loader Called on a miss, may return null when there is no such user (nothing is cached then)
+     */
+    public User get(String email, Function<String, User> loader) {
+        return CacheLoading.get(cache, email, loader);
+    }
+
+    public void invalidate(String email) {
+        cache.synchronous().invalidate(email);
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.getEmail() != null) {
+            invalidate(event.getEmail());
+        } else {
+            cache.synchronous().invalidateAll();
+        }
+    }
+}
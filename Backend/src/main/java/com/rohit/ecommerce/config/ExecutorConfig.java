@@ -0,0 +1,41 @@
+package com.rohit.ecommerce.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Dedicated, bounded thread pools for background work, kept apart from the request threads.
+ * A full queue rejects new tasks instead of growing, callers decide what to do then.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Bean(name = "imageProcessingExecutor")
+    public ThreadPoolTaskExecutor imageProcessingExecutor(
+            @Value("${app.images.processing.threads:2}") int threads,
+            @Value("${app.images.processing.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // Password hashing is CPU-bound on purpose (BCrypt), this pool caps how many cores logins can take
+    @Bean(name = "passwordHashingExecutor")
+    public ThreadPoolTaskExecutor passwordHashingExecutor(
+            @Value("${app.auth.hashing.threads:2}") int threads,
+            @Value("${app.auth.hashing.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-");
+        return executor;
+    }
+}
@@ -0,0 +1,42 @@
+package com.rohit.ecommerce.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * Serialization of API responses.
+ *
+ * Blackbird replaces reflective getter/setter calls with generated lambdas, registered on every ObjectMapper
+ * Spring Boot builds. Null fields are left out (spring.jackson.default-property-inclusion).
+ *
+ * Besides JSON, responses are available as Smile (application/x-jackson-smile) and CBOR (application/cbor)
+ * for internal clients that ask for them in Accept. JSON stays the default when Accept allows it.
+ * Spring adds both converters on its own when the dataformats are on the classpath, but with plain mappers;
+ * the beans here replace them with mappers configured like the JSON one (same modules, inclusion and date formats).
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,38 @@
+package com.rohit.ecommerce.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import com.rohit.ecommerce.metrics.RepositoryMetricsInterceptor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * Adds RepositoryMetricsInterceptor to every Spring Data repository proxy (ProductRepo, UserRepo).
+ * It replaces Spring Boot's spring.data.repository.invocations timer, which is turned off in application.properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // Static, a BeanPostProcessor has to exist before the repository factory beans are created
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<ObservationRegistry> observationRegistry,
+                                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactory) {
+                    repositoryFactory.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxy, repository) -> proxy.addAdvice(new RepositoryMetricsInterceptor(
+                                    repository.getRepositoryInterface().getSimpleName(),
+                                    observationRegistry.getObject(), meterRegistry.getObject()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
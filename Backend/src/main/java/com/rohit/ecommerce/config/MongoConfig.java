@@ -0,0 +1,46 @@
+package com.rohit.ecommerce.config;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.rohit.ecommerce.metrics.SlowCommandLogger;
+
+/**
+ * MongoDB client settings on top of spring.data.mongodb.*.
+ *
+ * With virtual threads the number of concurrent requests is no longer capped by the Tomcat pool,
+ * so the connection pool is what bounds the load on MongoDB. Requests wait at most
+ * app.mongo.pool.max-wait for a connection and then fail, instead of the driver's two minutes.
+ * The driver keeps at least app.mongo.pool.min-size connections open, so requests after a deploy or a quiet
+ * period don't each pay for a TCP and TLS handshake.
+ */
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer connectionPoolCustomizer(
+            @Value("${app.mongo.pool.min-size:0}") int minSize,
+            @Value("${app.mongo.pool.max-size:100}") int maxSize,
+            @Value("${app.mongo.pool.max-wait:2s}") Duration maxWait) {
+        return settings -> settings.applyToConnectionPoolSettings(pool -> pool
+                .minSize(minSize)
+                .maxSize(maxSize)
+                .maxWaitTime(maxWait.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    // Command timings themselves are recorded by Spring Boot as mongodb.driver.commands, 0 turns the log off
+    @Bean
+    public MongoClientSettingsBuilderCustomizer slowCommandLogCustomizer(
+            @Value("${app.mongo.slow-query-threshold:200ms}") Duration threshold) {
+        return settings -> {
+            if (!threshold.isZero()) {
+                settings.addCommandListener(new SlowCommandLogger(threshold));
+            }
+        };
+    }
+}
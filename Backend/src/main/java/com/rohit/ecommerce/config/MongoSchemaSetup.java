@@ -0,0 +1,81 @@
+package com.rohit.ecommerce.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.client.result.UpdateResult;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductWriteOperation;
+import com.rohit.ecommerce.model.StockReservation;
+import com.rohit.ecommerce.model.User;
+
+/**
+ * Brings the database in line with the model at startup: creates the indexes declared on the
+ * document classes (auto-index-creation is off) and converts legacy field representations.
+ * Disable with app.mongo.setup-on-startup=false, e.g. when no database is reachable.
+ * Failures of the product side are logged and do not stop the application. The unique email index is created
+ * separately and a failure stops the startup: registration relies on it to turn away duplicate emails
+ * (AuthService refuses to register while it is missing).
+ */
+@Component
+@Order(0)
+@ConditionalOnProperty(name = "app.mongo.setup-on-startup", havingValue = "true", matchIfMissing = true)
+public class MongoSchemaSetup implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoSchemaSetup.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            convertStringPrices();
+            ensureIndexes(Product.class);
+            ensureIndexes(StockReservation.class);
+            ensureIndexes(ProductWriteOperation.class);
+        } catch (Exception e) {
+            log.error("MongoDB schema setup failed", e);
+        }
+        try {
+            ensureIndexes(User.class);
+        } catch (Exception e) {
+            // Also while duplicate emails from before the unique index are still in the database, those need merging first
+            throw new IllegalStateException("Could not create the unique email index on users", e);
+        }
+    }
+
+    private void ensureIndexes(Class<?> documentType) {
+        MongoMappingContext mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        IndexOperations indexOps = mongoTemplate.indexOps(documentType);
+        resolver.resolveIndexFor(documentType).forEach(indexOps::createIndex);
+    }
+
+    // Prices used to be stored as strings, which sort "10" before "9"
+    private void convertStringPrices() {
+        UpdateResult result = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("price").type(JsonSchemaObject.Type.STRING)),
+                AggregationUpdate.update().set("price").toValue(ConvertOperators.ToDecimal.toDecimal("$price")),
+                "products");
+        if (result.getModifiedCount() > 0) {
+            log.info("Converted {} product prices to decimal", result.getModifiedCount());
+        }
+    }
+}
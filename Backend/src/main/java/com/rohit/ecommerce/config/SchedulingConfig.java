@@ -0,0 +1,12 @@
+package com.rohit.ecommerce.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Turns on @Scheduled methods. They run one at a time on Spring Boot's scheduler thread (spring.task.scheduling.*).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,128 @@
+package com.rohit.ecommerce.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductSort;
+import com.rohit.ecommerce.model.ProductSummary;
+import com.rohit.ecommerce.repo.ProductRepo;
+import com.rohit.ecommerce.service.AuthService;
+
+/**
+ * Runs the hot paths of a request a few times before the instance reports ready, so the first users after a
+ * deploy don't pay for class loading and interpreted code: the product queries behind the listing and the
+ * detail page, JWT signing and verification, and JSON/Smile/CBOR serialization of products.
+ *
+ * Runners finish before Spring Boot publishes ReadinessState.ACCEPTING_TRAFFIC, so /actuator/health/readiness
+ * answers 503 until the warm-up is done. It stops after app.warmup.iterations rounds or app.warmup.max-duration.
+ * The first ping also opens the connection pool, which the driver then fills to app.mongo.pool.min-size.
+ * Without a reachable database the queries are skipped. Failures are logged and do not stop the application.
+ */
+@Component
+@Order(10)
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class StartupWarmUp implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupWarmUp.class);
+
+    @Autowired
+    private ProductRepo repo;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Autowired
+    private ApplicationStartup applicationStartup;
+
+    @Value("${app.warmup.iterations:50}")
+    private int iterations;
+
+    @Value("${app.warmup.max-duration:20s}")
+    private Duration maxDuration;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        StartupStep step = applicationStartup.start("app.warmup");
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+        boolean database = ping();
+        int rounds = 0;
+        try {
+            while (rounds < iterations && System.nanoTime() < deadline) {
+                List<ProductSummary> page = database ? queryProducts() : List.of();
+                serialize(page);
+                authService.warmUp(1);
+                rounds++;
+            }
+        } catch (Exception e) {
+            log.warn("Warm-up stopped after {} rounds", rounds, e);
+        }
+        step.tag("rounds", String.valueOf(rounds)).tag("database", String.valueOf(database)).end();
+        log.info("Warm-up ran {} rounds in {} ms{}", rounds, Duration.ofNanos(System.nanoTime() - start).toMillis(),
+                database ? "" : " without the database");
+    }
+
+    private boolean ping() {
+        try {
+            mongoTemplate.executeCommand(new Document("ping", 1));
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("MongoDB is not reachable, warming up without it: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    // The first page of the listing, then the batch and detail lookups of what it returned
+    private List<ProductSummary> queryProducts() {
+        List<ProductSummary> page = repo.findSummaryPage(new Criteria(), ProductSort.NAME, Sort.Direction.ASC, null, 20);
+        if (!page.isEmpty()) {
+            repo.findSummariesByIdIn(page.stream().map(ProductSummary::getId).toList());
+            repo.findById(page.get(0).getId());
+        }
+        return page;
+    }
+
+    private void serialize(List<ProductSummary> page) throws IOException {
+        Product product = new Product();
+        product.setId("warm-up");
+        product.setName("Warm-up");
+        byte[] json = objectMapper.writeValueAsBytes(product);
+        objectMapper.readValue(json, Product.class);
+        objectMapper.writeValueAsBytes(page);
+        smileConverter.getObjectMapper().writeValueAsBytes(page);
+        cborConverter.getObjectMapper().writeValueAsBytes(page);
+    }
+}
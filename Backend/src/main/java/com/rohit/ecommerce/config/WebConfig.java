@@ -25,7 +25,8 @@ public class WebConfig implements WebMvcConfigurer {
                     "/api/auth/**",           // Exclude auth endpoints
                     // "/api/products",          // Allow public product listing
                     "/api/product/*/image",   // Allow public image access
-                    "/api/products/search"    // Allow public product search
+                    "/api/products/search",   // Allow public product search
+                    "/api/products/suggest"   // and its typeahead
                 );
     }
 }
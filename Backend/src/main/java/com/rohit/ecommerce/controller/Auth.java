@@ -1,6 +1,11 @@
 package com.rohit.ecommerce.controller;
 
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -12,22 +17,44 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.rohit.ecommerce.model.User;
 import com.rohit.ecommerce.service.AuthService;
+import com.rohit.ecommerce.service.LoginRateLimiter;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @CrossOrigin
 @RequestMapping("/api/auth")
+/**
+ * Login and registration. Attempts are rate-limited per client address and, for logins, per account (429 with
+ * Retry-After); when password hashing is saturated the request is turned away with 503 instead of queueing.
+ * Registration also answers 503 while the unique email index is missing.
+ */
 public class Auth {
 
+    private static final Logger log = LoggerFactory.getLogger(Auth.class);
+
     // Autowire the AuthService to handle authentication and registration logic
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private LoginRateLimiter rateLimiter;
+
     @PostMapping("/login")
-    public ResponseEntity<String> login(@RequestBody User user) {
+    public ResponseEntity<String> login(@RequestBody User user, HttpServletRequest request) {
         if(user.getEmail() == null || user.getPassword() == null) {
             return new ResponseEntity<>("Username and password must not be empty", HttpStatus.BAD_REQUEST);
         }
-        String authResult = authService.authenticate(user);
+        long retryAfter = rateLimiter.tryAcquire(user.getEmail(), request.getRemoteAddr());
+        if (retryAfter > 0) {
+            return tooManyAttempts(retryAfter);
+        }
+        String authResult;
+        try {
+            authResult = authService.authenticate(user);
+        } catch (RejectedExecutionException e) {
+            return busy();
+        }
         if(authResult == null) {
             return new ResponseEntity<>("Invalid username or password", HttpStatus.UNAUTHORIZED);
         }
@@ -35,15 +62,40 @@ public class Auth {
     }
 
     @PostMapping("/register")
-    public ResponseEntity<String> register(@RequestBody User user) {
+    public ResponseEntity<String> register(@RequestBody User user, HttpServletRequest request) {
         if( user.getEmail() == null || user.getPassword() == null) {
             return new ResponseEntity<>("Username, email, and password must not be empty", HttpStatus.BAD_REQUEST);
         }
-        if(authService.register(user)) {
+        long retryAfter = rateLimiter.tryAcquire(null, request.getRemoteAddr());
+        if (retryAfter > 0) {
+            return tooManyAttempts(retryAfter);
+        }
+        boolean registered;
+        try {
+            registered = authService.register(user);
+        } catch (RejectedExecutionException e) {
+            return busy();
+        } catch (IllegalStateException e) {
+            log.error("Registration is disabled", e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Registration is unavailable, please try again later");
+        }
+        if(registered) {
             return new ResponseEntity<>("Registration successful", HttpStatus.CREATED);
         } else {
             return new ResponseEntity<>("User already exists with this email", HttpStatus.CONFLICT);
         }
     }
 
+    private ResponseEntity<String> tooManyAttempts(long retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body("Too many attempts, please try again later");
+    }
+
+    private ResponseEntity<String> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many sign-ins right now, please try again");
+    }
+
 }
@@ -0,0 +1,73 @@
+package com.rohit.ecommerce.controller;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.rohit.ecommerce.middleware.RequiresAuth;
+import com.rohit.ecommerce.model.BulkImportResult;
+import com.rohit.ecommerce.service.ProductBulkService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+@RestController
+@CrossOrigin
+@RequestMapping("/api/products/bulk")
+/**
+ * Bulk catalog import and export, both protected by AuthInterceptor.
+ * POST the raw body as application/x-ndjson or text/csv, GET with ?format=ndjson|csv.
+ */
+public class ProductBulkController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private ProductBulkService bulkService;
+
+    @PostMapping(consumes = NDJSON)
+    @RequiresAuth(description = "Create or update products from NDJSON - requires authentication")
+    public ResponseEntity<BulkImportResult> importNdjson(HttpServletRequest request) throws IOException {
+        return new ResponseEntity<>(bulkService.importNdjson(request.getInputStream()), HttpStatus.OK);
+    }
+
+    @PostMapping(consumes = "text/csv")
+    @RequiresAuth(description = "Create or update products from CSV - requires authentication")
+    public ResponseEntity<BulkImportResult> importCsv(HttpServletRequest request) throws IOException {
+        return new ResponseEntity<>(bulkService.importCsv(request.getInputStream()), HttpStatus.OK);
+    }
+
+    @GetMapping
+    @RequiresAuth(description = "Export the whole catalog - requires authentication")
+    public ResponseEntity<?> exportProducts(@RequestParam(defaultValue = "ndjson") String format) {
+        StreamingResponseBody body;
+        MediaType contentType;
+        switch (format) {
+            case "ndjson" -> {
+                body = bulkService::exportNdjson;
+                contentType = MediaType.parseMediaType(NDJSON);
+            }
+            case "csv" -> {
+                body = bulkService::exportCsv;
+                contentType = MediaType.parseMediaType("text/csv;charset=UTF-8");
+            }
+            default -> {
+                return new ResponseEntity<>("Unknown format: " + format, HttpStatus.BAD_REQUEST);
+            }
+        }
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + format + "\"")
+                .body(body);
+    }
+}
@@ -1,27 +1,59 @@
 package com.rohit.ecommerce.controller;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.rohit.ecommerce.cache.CatalogSnapshot;
 import com.rohit.ecommerce.middleware.RequiresAuth;
 
+import com.rohit.ecommerce.model.ImageRendition;
 import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductBatchRequest;
+import com.rohit.ecommerce.model.ProductBrowsePage;
+import com.rohit.ecommerce.model.ProductFilter;
+import com.rohit.ecommerce.model.ProductPage;
+import com.rohit.ecommerce.model.ProductSort;
+import com.rohit.ecommerce.model.ProductSummary;
+import com.rohit.ecommerce.model.ProductWriteOperation;
+import com.rohit.ecommerce.search.Suggestion;
 import com.rohit.ecommerce.service.ProductService;
+import com.rohit.ecommerce.storage.StoredImage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @RestController
 @CrossOrigin
@@ -30,30 +62,136 @@ import com.rohit.ecommerce.service.ProductService;
  * ProductController handles all product-related operations.
  * Most endpoints in this controller are protected by AuthInterceptor,
  * which requires a valid JWT token in the Authorization header (Bearer format).
- * Public endpoints: GET /api/products, GET /api/product/{id}/image, GET /api/products/search
+ * Public endpoints: GET /api/products, GET /api/product/{id}/image, GET /api/products/search, GET /api/products/suggest
+ * The listing and search are keyset-paginated when sort, order, limit or cursor is given,
+ * the response is then a ProductPage whose nextCursor fetches the following page.
  */
 public class ProductController {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductController.class);
+
     @Autowired
     private ProductService service;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @GetMapping("/products")
-    public ResponseEntity<List<Product>> getAllProducts() {
-        System.out.println("Fetching all products");
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false) String sort,
+                                            @RequestParam(required = false) String order,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                            WebRequest webRequest) {
+        if (isPaged(sort, order, limit, cursor)) {
+            try {
+                ProductPage page = service.getProductPage(parseSort(sort), parseOrder(order), limit, cursor);
+                return new ResponseEntity<>(page, HttpStatus.OK);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+        }
+        if (!acceptsJson(accept)) {
+            // Smile or CBOR for internal clients, written by the message converters from the summaries
+            return new ResponseEntity<>(service.getProductSummaries(), HttpStatus.OK);
+        }
+        // The whole catalog is served from the in-memory snapshot as it is, gzipped when the client accepts it
+        CatalogSnapshot.Listing listing = service.getCatalogListing();
+        if (webRequest.checkNotModified(listing.getEtag())) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(listing.getGzip());
+        }
+        return response.body(listing.getJson());
+    }
 
-        return new ResponseEntity<>(null != service.getAllProducts() ? service.getAllProducts() : List.of(), HttpStatus.OK);
+    private boolean acceptsJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream().anyMatch(type -> type.isCompatibleWith(MediaType.APPLICATION_JSON));
+        } catch (InvalidMediaTypeException e) {
+            return true;
+        }
+    }
+
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
     
+    /**
+     * Filtered listing with facet counts, e.g. /products/browse?category=Mobile&minPrice=100&available=true.
+     * Keyset-paginated like /products, sorted by name unless asked otherwise.
+     */
+    @GetMapping("/products/browse")
+    @RequiresAuth(description = "Browse products by category, brand, price and availability - requires authentication")
+    public ResponseEntity<?> browseProducts(@RequestParam(required = false) String category,
+                                            @RequestParam(required = false) String brand,
+                                            @RequestParam(required = false) BigDecimal minPrice,
+                                            @RequestParam(required = false) BigDecimal maxPrice,
+                                            @RequestParam(required = false) Boolean available,
+                                            @RequestParam(required = false) String sort,
+                                            @RequestParam(required = false) String order,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) String cursor) {
+        try {
+            ProductFilter filter = new ProductFilter(category, brand, minPrice, maxPrice, available);
+            ProductBrowsePage page = service.browseProducts(filter, parseSort(sort), parseOrder(order), limit, cursor);
+            return new ResponseEntity<>(page, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @GetMapping("/product/{id}")
     @RequiresAuth(description = "Get product details by ID - requires authentication")
     public ResponseEntity<Product> getProductById(@PathVariable String id) {
         Product product = service.getProductById(id);
         if (product != null) {
-            return new ResponseEntity<>(product, HttpStatus.OK);
+            service.recordProductView(id);
+            return ResponseEntity.ok().eTag(versionTag(product)).body(product);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
+
+    /**
+     * Several products in one request, e.g. for a cart: POST /products/batch with { "ids": [...] }.
+     * Answers a ProductBatch with the products in the order asked for and the ids that don't exist under missing.
+     * view=summary returns ProductSummary items, without description and image details.
+     */
+    @PostMapping("/products/batch")
+    @RequiresAuth(description = "Get several products by ID - requires authentication")
+    public ResponseEntity<?> getProductBatch(@RequestBody ProductBatchRequest request,
+                                             @RequestParam(required = false) String view) {
+        try {
+            if ("summary".equals(view)) {
+                return new ResponseEntity<>(service.getProductSummaries(request.getIds()), HttpStatus.OK);
+            }
+            if (view != null && !"full".equals(view)) {
+                return new ResponseEntity<>("Unknown view: " + view, HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(service.getProducts(request.getIds()), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @PostMapping("/product")
     @RequiresAuth(description = "Add new product - requires authentication")
     public ResponseEntity<?> addProduct(@RequestPart Product product, @RequestPart MultipartFile imageFile) {
@@ -61,21 +199,67 @@ public class ProductController {
             Product savedProduct = service.addProduct(product, imageFile);
             return new ResponseEntity<>(savedProduct,HttpStatus.CREATED);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Failed to add product {}", product.getName(), e);
             return new ResponseEntity<>(e.getMessage(),HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
     @GetMapping("/product/{productId}/image")
-    public ResponseEntity<byte[]> getImageByProductId(@PathVariable String productId) {
+    public ResponseEntity<?> getImageByProductId(@PathVariable String productId,
+                                                 @RequestParam(required = false) String size,
+                                                 @RequestParam(name = "v", required = false) String version,
+                                                 WebRequest webRequest) throws IOException {
         Product product = service.getProductById(productId);
-        if (product != null && product.getImageData() != null) {
-            return ResponseEntity.ok()
-                    .header("ContentType", product.getImageType())
-                    .body(product.getImageData());
-        } else {
+        ImageRendition rendition;
+        try {
+            rendition = service.selectImage(product, size);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        if (rendition == null) {
             return ResponseEntity.notFound().build();
         }
+        // If-None-Match / If-Modified-Since are answered from the cached product without touching the image store.
+        // checkNotModified also writes the ETag and Last-Modified headers for the 200 response below.
+        String etag = rendition.getHash() != null ? "\"" + rendition.getHash() + "\"" : null;
+        long lastModified = rendition.getCreatedAt() != null ? rendition.getCreatedAt().getTime() : -1;
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+        StoredImage image = service.loadImage(rendition);
+        if (image == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // The image is copied from the store to the response stream, never held in memory as a whole.
+        // Spring answers Range requests from the same resource with 206 Partial Content.
+        // Bytes actually written are counted in app.images.bytes.served, per requested size.
+        Counter served = Counter.builder("app.images.bytes.served")
+                .baseUnit("bytes")
+                .tag("size", size != null ? size : ImageRendition.ORIGINAL)
+                .register(meterRegistry);
+        return ResponseEntity.ok()
+                .contentType(parseImageType(rendition.getContentType()))
+                .cacheControl(imageCacheControl(product, rendition, size, version))
+                .body(image.withReadListener(served::increment));
+    }
+
+    // Image URLs are versioned with the hash of the original upload (?v={imageHash}). Such a URL never changes content,
+    // except while a rendition is still being made and the original is served in its place.
+    private CacheControl imageCacheControl(Product product, ImageRendition served, String size, String version) {
+        boolean fallback = size != null && !ImageRendition.ORIGINAL.equals(size)
+                && served.getImageId().equals(product.getImageId());
+        if (version != null && version.equals(product.getImageHash()) && !fallback) {
+            return CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+        }
+        return CacheControl.noCache().cachePublic();
+    }
+
+    private MediaType parseImageType(String imageType) {
+        try {
+            return imageType != null ? MediaType.parseMediaType(imageType) : MediaType.APPLICATION_OCTET_STREAM;
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
     }
 
     @PutMapping("/product/{id}")
@@ -86,10 +270,10 @@ public class ProductController {
         try{
             product2 = service.updateProduct(id,product, imageFile);
         } catch (IOException e) {
-            e.printStackTrace();
+            log.warn("Failed to update product {}", id, e);
             return new ResponseEntity<>("Failed to update: " + e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Failed to update product {}", id, e);
             return new ResponseEntity<>("Unexpected error: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
         if (product2 != null) {
@@ -99,12 +283,102 @@ public class ProductController {
         }
     }
 
+    /**
+     * Changes only the fields in the JSON body, e.g. {"price": 19.99, "stockQuantity": 4}.
+     * Send the ETag of GET /product/{id} as If-Match to fail with 412 if the product was changed meanwhile.
+     * With Prefer: respond-async the changes are validated and queued, the answer is 202 with the
+     * ProductWriteOperation and its status URL in Location (503 while the queue is full). Not combinable with If-Match.
+     */
+    @PatchMapping("/product/{id}")
+    @RequiresAuth(description = "Update some fields of a product - requires authentication")
+    public ResponseEntity<?> patchProduct(@PathVariable String id, @RequestBody Map<String, Object> changes,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                          @RequestHeader(value = "Prefer", required = false) String prefer) {
+        if (respondAsync(prefer) && service.isWriteBehindEnabled()) {
+            return queuePatch(id, changes, ifMatch);
+        }
+        try {
+            Product product = service.patchProduct(id, changes, parseVersion(ifMatch));
+            if (product == null) {
+                return new ResponseEntity<>("Product not found", HttpStatus.NOT_FOUND);
+            }
+            return ResponseEntity.ok().eTag(versionTag(product)).body(product);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.PRECONDITION_FAILED);
+        }
+    }
+
+    private ResponseEntity<?> queuePatch(String id, Map<String, Object> changes, String ifMatch) {
+        if (ifMatch != null && !ifMatch.isBlank() && !ifMatch.trim().equals("*")) {
+            return new ResponseEntity<>("If-Match can't be used with Prefer: respond-async", HttpStatus.BAD_REQUEST);
+        }
+        try {
+            ProductWriteOperation operation = service.queuePatch(id, changes);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/products/writes/" + operation.getOperationId()))
+                    .body(operation);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Too many product changes queued, please try again");
+        }
+    }
+
+    /**
+     * State of a change accepted with Prefer: respond-async, 404 once it is older than app.products.write-behind.status-ttl
+     */
+    @GetMapping("/products/writes/{operationId}")
+    @RequiresAuth(description = "Get the state of a queued product change - requires authentication")
+    public ResponseEntity<ProductWriteOperation> getWriteOperation(@PathVariable String operationId) {
+        ProductWriteOperation operation = service.getWriteOperation(operationId);
+        if (operation == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(operation, HttpStatus.OK);
+    }
+
+    // Prefer can hold several comma separated preferences (RFC 7240)
+    private static boolean respondAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            if (preference.trim().equalsIgnoreCase("respond-async")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String versionTag(Product product) {
+        return String.valueOf(product.getVersion() != null ? product.getVersion() : 0);
+    }
+
+    // If-Match carries the ETag written by versionTag, "*" matches any version
+    private static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        tag = tag.replace("\"", "");
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match must be a product version");
+        }
+    }
+
     @DeleteMapping("/product/{id}")
     @RequiresAuth(description = "Delete product - requires authentication")
     public ResponseEntity<String> deleteProduct(@PathVariable String id) {
-        Product product = service.getProductById(id);
-        if (product != null) {
-            service.deleteProduct(id);
+        if (service.deleteProduct(id)) {
             return new ResponseEntity<>("Product deleted successfully", HttpStatus.OK);
         } else {
             return new ResponseEntity<>("Product not found", HttpStatus.NOT_FOUND); 
@@ -112,14 +386,54 @@ public class ProductController {
     }
 
     @GetMapping("/products/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String keyword) {
+    public ResponseEntity<?> searchProducts(@RequestParam String keyword,
+                                            @RequestParam(required = false) String sort,
+                                            @RequestParam(required = false) String order,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) String cursor) {
+        if (isPaged(sort, order, limit, cursor)) {
+            try {
+                ProductSort searchSort = sort == null ? ProductSort.RELEVANCE : ProductSort.fromParam(sort);
+                // Best matches first unless asked otherwise
+                Sort.Direction direction = order == null && searchSort == ProductSort.RELEVANCE ? Sort.Direction.DESC : parseOrder(order);
+                ProductPage page = service.searchProductPage(keyword, searchSort, direction, limit, cursor);
+                return new ResponseEntity<>(page, HttpStatus.OK);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+        }
 
-        List<Product> products = service.searchProducts(keyword);
+        List<ProductSummary> products = service.searchProducts(keyword);
         if (products != null && !products.isEmpty()) {
             return new ResponseEntity<>(products, HttpStatus.OK);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
-}
 
+    /**
+     * Typeahead for the search box, e.g. /products/suggest?q=gal: product names, brands and categories
+     * with a word starting with q, most popular first. Answered from memory, public like the search.
+     */
+    @GetMapping("/products/suggest")
+    public ResponseEntity<?> suggest(@RequestParam String q, @RequestParam(required = false) Integer limit) {
+        if (limit != null && limit < 1) {
+            return new ResponseEntity<>("limit must be at least 1", HttpStatus.BAD_REQUEST);
+        }
+        List<Suggestion> suggestions = service.suggest(q, limit != null ? limit : Integer.MAX_VALUE);
+        return new ResponseEntity<>(suggestions, HttpStatus.OK);
+    }
+
+    // Without any paging parameter the listing and search keep returning the complete result as a plain array
+    private boolean isPaged(String sort, String order, Integer limit, String cursor) {
+        return sort != null || order != null || limit != null || cursor != null;
+    }
+
+    private ProductSort parseSort(String sort) {
+        return sort == null ? ProductSort.NAME : ProductSort.fromParam(sort);
+    }
+
+    private Sort.Direction parseOrder(String order) {
+        return order == null ? Sort.Direction.ASC : Sort.Direction.fromString(order);
+    }
+}
@@ -0,0 +1,79 @@
+package com.rohit.ecommerce.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.rohit.ecommerce.middleware.AuthInterceptor;
+import com.rohit.ecommerce.middleware.RequiresAuth;
+import com.rohit.ecommerce.model.AuthPrincipal;
+import com.rohit.ecommerce.model.StockReservation;
+import com.rohit.ecommerce.service.StockReservationService;
+
+@RestController
+@CrossOrigin
+@RequestMapping("/api/product/{productId}/reservations")
+/**
+ * Checkout stock reservations, protected by AuthInterceptor.
+ * Reserve takes the stock right away and holds it until app.stock.reservations.ttl runs out;
+ * commit keeps it taken, release gives it back. Only the user who made a reservation can commit or release it.
+ */
+public class StockReservationController {
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @PostMapping
+    @RequiresAuth(description = "Reserve stock of a product - requires authentication")
+    public ResponseEntity<?> reserve(@PathVariable String productId,
+                                     @RequestParam(defaultValue = "1") int quantity,
+                                     @RequestAttribute(AuthInterceptor.PRINCIPAL_ATTRIBUTE) AuthPrincipal principal) {
+        try {
+            StockReservation reservation = reservationService.reserve(productId, quantity, principal.getEmail());
+            if (reservation == null) {
+                return new ResponseEntity<>("Product not found", HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(reservation, HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
+    @PostMapping("/{reservationId}/commit")
+    @RequiresAuth(description = "Commit a stock reservation - requires authentication")
+    public ResponseEntity<?> commit(@PathVariable String productId, @PathVariable String reservationId,
+                                    @RequestAttribute(AuthInterceptor.PRINCIPAL_ATTRIBUTE) AuthPrincipal principal) {
+        try {
+            return respond(reservationService.commit(productId, reservationId, principal.getEmail()));
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
+    @PostMapping("/{reservationId}/release")
+    @RequiresAuth(description = "Release a stock reservation - requires authentication")
+    public ResponseEntity<?> release(@PathVariable String productId, @PathVariable String reservationId,
+                                     @RequestAttribute(AuthInterceptor.PRINCIPAL_ATTRIBUTE) AuthPrincipal principal) {
+        try {
+            return respond(reservationService.release(productId, reservationId, principal.getEmail()));
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+
+    private ResponseEntity<?> respond(StockReservation reservation) {
+        if (reservation == null) {
+            return new ResponseEntity<>("Reservation not found", HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(reservation, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,17 @@
+package com.rohit.ecommerce.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published when too many products changed at once to send a ProductChangedEvent for each,
+ * e.g. after a bulk import. Listeners drop or rebuild all derived state instead of patching it.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class CatalogChangedEvent {
+
+    private final String reason;
+}
@@ -0,0 +1,278 @@
+package com.rohit.ecommerce.event;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import com.rohit.ecommerce.model.Product;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Tails the MongoDB change stream of the products and users collections and republishes every change
+ * as a ProductChangedEvent or UserChangedEvent, so caches, the search index and the catalog snapshot of
+ * this instance follow writes made by the other instances. Needs a replica set (Atlas always is one).
+ *
+ * Writes made by this instance come back through the stream as well; the listeners apply them a second
+ * time, which changes nothing. Updates carry the looked-up document, so listeners don't reload it. An update
+ * of nothing but the stock fields is republished as a stock change.
+ *
+ * The resume token of the last change is kept in memory and the stream resumes after it when the
+ * connection drops. A gap longer than app.change-stream.max-replay, or one the oplog no longer covers,
+ * is not replayed: a CatalogChangedEvent and a UserChangedEvent for all users make every listener reload
+ * instead. The new stream is opened before that reload, so a write the reload reads too early still
+ * comes through the stream. For the same reason the first stream is opened before the ApplicationReadyEvent
+ * preloads run. Tokens are not persisted, a restarted instance loads its derived state from scratch anyway.
+ *
+ * Off unless app.change-stream.enabled=true, as a standalone server can't open change streams; render.yaml
+ * turns it on for the deployment.
+ */
+@Component
+@ConditionalOnProperty(name = "app.change-stream.enabled", havingValue = "true")
+public class ChangeStreamPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeStreamPublisher.class);
+
+    static final String PRODUCTS = "products";
+    static final String USERS = "users";
+
+    // The stream can't be opened at all: not a replica set
+    private static final Set<Integer> UNSUPPORTED = Set.of(40573);
+    // The resume token is no longer usable: history lost (286), oplog rolled over (136, CappedPositionLost),
+    // invalid token (260), fatal stream error (280)
+    private static final Set<Integer> CANNOT_RESUME = Set.of(286, 136, 260, 280);
+    // Fields written by a stock reservation
+    private static final Set<String> STOCK_FIELDS = Set.of("stockQuantity", "available", "version");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.change-stream.max-replay:5m}")
+    private Duration maxReplay;
+
+    @Value("${app.change-stream.retry-delay:5s}")
+    private Duration retryDelay;
+
+    private volatile boolean running;
+    private Thread thread;
+    private BsonDocument resumeToken;
+    private long lastContact;
+    // Why derived state has to be reloaded once the next stream is open, null if it doesn't
+    private String reloadReason;
+
+    /**
+     * Takes the current stream position before the other ApplicationReadyEvent listeners preload the
+     * catalog, so writes made during the preload are delivered afterwards.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void start() {
+        if (thread == null) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = watch().cursor()) {
+                resumeToken = cursor.getResumeToken();
+                lastContact = System.nanoTime();
+            } catch (MongoException e) {
+                // Opened later by the tailer, what the preloads read by then may be outdated
+                log.warn("Could not open the change stream before the preloads: {}", e.getMessage());
+                reloadReason = "stream opened after startup";
+            }
+            running = true;
+            thread = Thread.ofPlatform().name("change-stream").daemon().start(this::run);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread tailer;
+        synchronized (this) {
+            running = false;
+            tailer = thread;
+        }
+        if (tailer != null) {
+            tailer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void run() {
+        log.info("Following changes to {} and {}", PRODUCTS, USERS);
+        while (running) {
+            try {
+                if (resumeToken != null && System.nanoTime() - lastContact > maxReplay.toNanos()) {
+                    restartFromNow("disconnected for longer than " + maxReplay);
+                }
+                follow();
+            } catch (MongoCommandException e) {
+                if (UNSUPPORTED.contains(e.getErrorCode())) {
+                    log.error("Change streams are not available, other instances' writes won't be seen here: {}", e.getErrorMessage());
+                    return;
+                }
+                if (CANNOT_RESUME.contains(e.getErrorCode())) {
+                    restartFromNow(e.getErrorCodeName());
+                    continue;
+                }
+                pause(e);
+            } catch (MongoException e) {
+                pause(e);
+            } catch (RuntimeException e) {
+                // A listener failed, the change is skipped and the stream carries on after it
+                log.error("Could not apply a change from the change stream", e);
+            }
+        }
+    }
+
+    void follow() {
+        ChangeStreamIterable<Document> changes = watch();
+        if (resumeToken != null) {
+            changes = changes.resumeAfter(resumeToken);
+        }
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = changes.cursor()) {
+            if (resumeToken == null) {
+                resumeToken = cursor.getResumeToken();
+            }
+            lastContact = System.nanoTime();
+            if (reloadReason != null) {
+                // Only now that the stream is open: anything written after the reload's reads is still delivered
+                String reason = reloadReason;
+                reloadReason = null;
+                eventPublisher.publishEvent(new CatalogChangedEvent("change stream restart: " + reason));
+                eventPublisher.publishEvent(new UserChangedEvent(null, null));
+            }
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                lastContact = System.nanoTime();
+                if (change != null) {
+                    // Moved past even if a listener fails, one bad change must not stop the stream
+                    resumeToken = change.getResumeToken();
+                    if (!dispatch(change)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private ChangeStreamIterable<Document> watch() {
+        return mongoTemplate.getDb()
+                .watch(List.of(Aggregates.match(Filters.in("ns.coll", PRODUCTS, USERS))), Document.class)
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Publishes the event for one change
+     * @return false if the stream was invalidated (collection dropped or renamed) and has to be reopened
+     */
+    boolean dispatch(ChangeStreamDocument<Document> change) {
+        String collection = change.getNamespace() != null ? change.getNamespace().getCollectionName() : null;
+        Counter.builder("app.change-stream.events")
+                .tag("collection", collection != null ? collection : "none")
+                .tag("operation", change.getOperationTypeString())
+                .register(meterRegistry)
+                .increment();
+        switch (change.getOperationType()) {
+            case UPDATE -> {
+                if (PRODUCTS.equals(collection) && stockOnly(change.getUpdateDescription()) && change.getFullDocument() != null) {
+                    Product product = mongoTemplate.getConverter().read(Product.class, change.getFullDocument());
+                    eventPublisher.publishEvent(ProductChangedEvent.stock(product.getId(), product.getStockQuantity(),
+                            product.isAvailable(), product.getVersion()));
+                } else {
+                    changed(collection, id(change), change.getFullDocument());
+                }
+            }
+            case INSERT, REPLACE -> changed(collection, id(change), change.getFullDocument());
+            case DELETE -> changed(collection, id(change), null);
+            case DROP, RENAME, DROP_DATABASE, INVALIDATE -> {
+                restartFromNow(change.getOperationTypeString() + " of " + collection);
+                return false;
+            }
+            default -> {
+            }
+        }
+        return true;
+    }
+
+    private void changed(String collection, String id, Document document) {
+        if (PRODUCTS.equals(collection)) {
+            if (document != null) {
+                eventPublisher.publishEvent(ProductChangedEvent.saved(mongoTemplate.getConverter().read(Product.class, document)));
+            } else {
+                eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
+            }
+        } else if (USERS.equals(collection)) {
+            eventPublisher.publishEvent(new UserChangedEvent(id, document != null ? document.getString("email") : null));
+        }
+    }
+
+    // A stock reservation, released or expired: listeners only patch the stock instead of re-deriving the product
+    private static boolean stockOnly(UpdateDescription update) {
+        if (update == null || update.getUpdatedFields() == null || update.getUpdatedFields().isEmpty()) {
+            return false;
+        }
+        boolean removed = update.getRemovedFields() != null && !update.getRemovedFields().isEmpty();
+        boolean truncated = update.getTruncatedArrays() != null && !update.getTruncatedArrays().isEmpty();
+        return !removed && !truncated && STOCK_FIELDS.containsAll(update.getUpdatedFields().keySet());
+    }
+
+    // Drops the resume position, every listener reloads once the next stream is open (see follow)
+    private void restartFromNow(String reason) {
+        log.warn("Not replaying missed changes ({}), reloading derived state", reason);
+        resumeToken = null;
+        reloadReason = reason;
+    }
+
+    private void pause(MongoException e) {
+        log.warn("Change stream interrupted, reconnecting in {}: {}", retryDelay, e.getMessage());
+        try {
+            Thread.sleep(retryDelay.toMillis());
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    // Product ids are ObjectIds, stored and published as their hex string
+    private static String id(ChangeStreamDocument<Document> change) {
+        BsonValue id = change.getDocumentKey() != null ? change.getDocumentKey().get("_id") : null;
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package com.rohit.ecommerce.event;
+
+import com.rohit.ecommerce.model.Product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published through the Spring ApplicationEventPublisher after a product was written.
+ * Derived state (search index, caches, ...) listens to it with @EventListener and updates itself.
+ * product is the state after the write when the writer has it at hand, otherwise null and listeners reload by id.
+ * STOCK is a write that only changed stockQuantity, available and version (stock reservations). It carries
+ * those values instead of the product, listeners patch their copy and skip everything derived from the other fields.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ProductChangedEvent {
+
+    public enum Type {
+        SAVED,
+        STOCK,
+        DELETED
+    }
+
+    private final String productId;
+    private final Type type;
+    private final Product product;
+    // Set for STOCK only
+    private final Integer stockQuantity;
+    private final Boolean available;
+    private final Long version;
+
+    public static ProductChangedEvent saved(Product product) {
+        return new ProductChangedEvent(product.getId(), Type.SAVED, product, null, null, null);
+    }
+
+    public static ProductChangedEvent updated(String productId) {
+        return new ProductChangedEvent(productId, Type.SAVED, null, null, null, null);
+    }
+
+    public static ProductChangedEvent stock(String productId, int stockQuantity, boolean available, Long version) {
+        return new ProductChangedEvent(productId, Type.STOCK, null, stockQuantity, available, version);
+    }
+
+    public static ProductChangedEvent deleted(String productId) {
+        return new ProductChangedEvent(productId, Type.DELETED, null, null, null, null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.rohit.ecommerce.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published when a user document was written by another instance (see ChangeStreamPublisher).
+ * email is null when it isn't known, e.g. for a deleted user; listeners then drop everything they hold about users.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class UserChangedEvent {
+
+    private final String userId;
+    private final String email;
+}
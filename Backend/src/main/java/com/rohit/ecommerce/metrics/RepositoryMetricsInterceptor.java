@@ -0,0 +1,88 @@
+package com.rohit.ecommerce.metrics;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.domain.Slice;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * Times every call to a repository and counts the documents it returns, added to the repository proxies by MetricsConfig.
+ *
+ * Each call is an observation named app.repository.calls, which gives a timer tagged with repository and method
+ * (and a span when tracing is on), and app.repository.documents records how many documents came back.
+ * Streams are counted as they are consumed and recorded when closed, their timer only covers opening the cursor.
+ * Timings per MongoDB command are in mongodb.driver.commands, slow commands are logged by SlowCommandLogger.
+ */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+    static final String CALLS = "app.repository.calls";
+    static final String DOCUMENTS = "app.repository.documents";
+
+    private final String repository;
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+
+    public RepositoryMetricsInterceptor(String repository, ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.observationRegistry = observationRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String method = invocation.getMethod().getName();
+        Object result = Observation.createNotStarted(CALLS, observationRegistry)
+                .contextualName(repository + "." + method)
+                .lowCardinalityKeyValue("repository", repository)
+                .lowCardinalityKeyValue("method", method)
+                .observeChecked(invocation::proceed);
+        if (invocation.getMethod().getReturnType() == void.class) {
+            return result;
+        }
+        DistributionSummary documents = DistributionSummary.builder(DOCUMENTS)
+                .baseUnit("documents")
+                .tag("repository", repository)
+                .tag("method", method)
+                .register(meterRegistry);
+        if (result instanceof Stream<?> stream) {
+            LongAdder count = new LongAdder();
+            return stream.peek(document -> count.increment()).onClose(() -> documents.record(count.sum()));
+        }
+        long count = documentCount(result);
+        if (count >= 0) {
+            documents.record(count);
+        }
+        return result;
+    }
+
+    /**
+     * @return How many documents a repository method returned, -1 if the result isn't documents (counts, booleans)
+     */
+    static long documentCount(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Number || result instanceof Boolean) {
+            return -1;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,122 @@
+package com.rohit.ecommerce.metrics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+/**
+ * Logs MongoDB commands that take longer than app.mongo.slow-query-threshold, registered in MongoConfig.
+ *
+ * The log line has the command, the collection and the shape of its filter, sort and pipeline with every
+ * value replaced by ?, e.g. find products {"category": ?, "price": {"$gte": ?}}. That is enough to find
+ * the missing index without writing emails or other user data to the log.
+ */
+public class SlowCommandLogger implements CommandListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowCommandLogger.class);
+
+    // Parts of a command that describe the query, the rest (documents to insert, cursor options...) is left out
+    private static final List<String> QUERY_FIELDS = List.of("filter", "query", "sort", "pipeline", "updates", "deletes");
+    private static final int MAX_LENGTH = 1000;
+
+    private final long thresholdNanos;
+    // The command document is only readable during commandStarted, so its summary is kept until the command ends
+    private final Map<Integer, String> running = new ConcurrentHashMap<>();
+
+    public SlowCommandLogger(Duration threshold) {
+        this.thresholdNanos = threshold.toNanos();
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        running.put(event.getRequestId(), describe(event.getCommandName(), event.getCommand()));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        finished(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS), null);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        finished(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS), event.getThrowable());
+    }
+
+    private void finished(int requestId, long elapsedNanos, Throwable failure) {
+        String command = running.remove(requestId);
+        if (command == null || elapsedNanos < thresholdNanos) {
+            return;
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        if (failure == null) {
+            log.warn("Slow MongoDB command took {} ms: {}", millis, command);
+        } else {
+            log.warn("Slow MongoDB command failed after {} ms: {} ({})", millis, command, failure.toString());
+        }
+    }
+
+    /**
+     * @return The command name, its collection and the shape of its query fields
+     */
+    static String describe(String commandName, BsonDocument command) {
+        StringBuilder text = new StringBuilder(commandName);
+        BsonValue collection = command.get(commandName);
+        if (collection != null && collection.isString()) {
+            text.append(' ').append(collection.asString().getValue());
+        }
+        for (String field : QUERY_FIELDS) {
+            BsonValue value = command.get(field);
+            if (value != null && text.length() < MAX_LENGTH) {
+                text.append(' ').append(field).append('=');
+                shape(value, text);
+            }
+        }
+        if (text.length() > MAX_LENGTH) {
+            text.setLength(MAX_LENGTH);
+            text.append("...");
+        }
+        return text.toString();
+    }
+
+    // Documents keep their keys, arrays show their first element, values become ?
+    private static void shape(BsonValue value, StringBuilder text) {
+        if (value.isDocument()) {
+            text.append('{');
+            boolean first = true;
+            for (Map.Entry<String, BsonValue> entry : value.asDocument().entrySet()) {
+                if (!first) {
+                    text.append(", ");
+                }
+                first = false;
+                text.append('"').append(entry.getKey()).append("\": ");
+                shape(entry.getValue(), text);
+            }
+            text.append('}');
+        } else if (value.isArray()) {
+            BsonArray array = value.asArray();
+            text.append('[');
+            if (!array.isEmpty()) {
+                shape(array.get(0), text);
+                if (array.size() > 1) {
+                    text.append(", ...");
+                }
+            }
+            text.append(']');
+        } else {
+            text.append('?');
+        }
+    }
+}
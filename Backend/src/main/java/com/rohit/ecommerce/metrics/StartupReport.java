@@ -0,0 +1,86 @@
+package com.rohit.ecommerce.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+/**
+ * Logs how long the instance took from JVM start until it accepted traffic, with the slowest startup steps
+ * (bean creation, StartupWarmUp), and publishes the total as app.startup.time-to-ready. Unlike Spring
+ * Boot's application.ready.time it includes the ApplicationReadyEvent listeners that load the in-memory
+ * indexes, which is what a rolling deploy waits for.
+ *
+ * The steps come from the BufferingApplicationStartup set in EcommerceApplication; the full timeline is
+ * served at /actuator/startup.
+ */
+@Component
+public class StartupReport {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupReport.class);
+
+    @Autowired
+    private ApplicationStartup applicationStartup;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.startup.report.slowest-steps:10}")
+    private int slowestSteps;
+
+    private volatile boolean reported;
+
+    @EventListener
+    public void onReadiness(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() != ReadinessState.ACCEPTING_TRAFFIC || reported) {
+            return;
+        }
+        reported = true;
+        long timeToReady = ManagementFactory.getRuntimeMXBean().getUptime();
+        TimeGauge.builder("app.startup.time-to-ready", () -> timeToReady, TimeUnit.MILLISECONDS)
+                .description("Time from JVM start until the instance accepted traffic")
+                .register(meterRegistry);
+        log.info("Ready for traffic {} ms after JVM start{}", timeToReady, slowest());
+    }
+
+    private String slowest() {
+        if (slowestSteps <= 0 || !(applicationStartup instanceof BufferingApplicationStartup buffering)) {
+            return "";
+        }
+        // Steps include the time of the steps nested in them, e.g. a bean and the beans it depends on
+        List<StartupTimeline.TimelineEvent> events = buffering.getBufferedTimeline().getEvents();
+        return events.stream()
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(slowestSteps)
+                .map(event -> describe(event.getStartupStep(), event.getDuration()))
+                .collect(Collectors.joining(", ", ", slowest steps: ", ""));
+    }
+
+    private static String describe(StartupStep step, Duration duration) {
+        StringBuilder text = new StringBuilder(step.getName());
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (tag.getKey().equals("beanName")) {
+                text.append(' ').append(tag.getValue());
+            }
+        }
+        return text.append(' ').append(duration.toMillis()).append(" ms").toString();
+    }
+}
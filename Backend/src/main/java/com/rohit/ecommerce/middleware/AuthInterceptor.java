@@ -4,17 +4,27 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.ModelAndView;
+import com.rohit.ecommerce.model.AuthPrincipal;
 import com.rohit.ecommerce.service.AuthService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpStatus;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
 @Component
 public class AuthInterceptor implements HandlerInterceptor {
 
+    // Request attribute holding the AuthPrincipal of an authenticated request
+    public static final String PRINCIPAL_ATTRIBUTE = "authPrincipal";
+
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         // Skip OPTIONS requests (for CORS preflight)
@@ -30,10 +40,11 @@ public class AuthInterceptor implements HandlerInterceptor {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7); // Remove "Bearer " prefix
             
-            // Validate the token
-            boolean isValid = authService.validateToken(token);
+            // Validate the token, a token seen before is answered from the verified-token cache
+            AuthPrincipal principal = verify(token);
             
-            if (isValid) {
+            if (principal != null) {
+                request.setAttribute(PRINCIPAL_ATTRIBUTE, principal);
                 return true; // Allow the request to proceed
             }
         }
@@ -44,6 +55,22 @@ public class AuthInterceptor implements HandlerInterceptor {
         return false; // Block the request
     }
 
+    // Timed as app.auth.verify, tagged with outcome valid, invalid or error
+    private AuthPrincipal verify(String token) {
+        Observation observation = Observation.start("app.auth.verify", observationRegistry);
+        try {
+            AuthPrincipal principal = authService.verifyToken(token);
+            observation.lowCardinalityKeyValue("outcome", principal != null ? "valid" : "invalid");
+            return principal;
+        } catch (RuntimeException e) {
+            observation.lowCardinalityKeyValue("outcome", "error");
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
     @Override
     public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) throws Exception {
         // Nothing to do here
@@ -0,0 +1,20 @@
+package com.rohit.ecommerce.model;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The user behind a verified JWT. AuthInterceptor stores it as the request attribute
+ * {@code authPrincipal}, controllers can take it with {@code @RequestAttribute("authPrincipal")}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class AuthPrincipal {
+
+    private final String email;
+    private final Date expiresAt;
+}
@@ -0,0 +1,32 @@
+package com.rohit.ecommerce.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a bulk import. Only the first errors are listed (app.bulk.max-reported-errors),
+ * failed always holds the full count.
+ */
+@Data
+@NoArgsConstructor
+public class BulkImportResult {
+
+    private long received;
+    private long inserted;
+    private long updated;
+    private long failed;
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        private long line;
+        private String id;
+        private String message;
+    }
+}
@@ -0,0 +1,33 @@
+package com.rohit.ecommerce.model;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One stored version of a product image: the original upload or a resized copy made by ImageRenditionService.
+ * Each rendition is a separate object in the ImageStore with its own content hash.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImageRendition {
+
+    public static final String ORIGINAL = "original";
+    public static final String THUMBNAIL = "thumbnail";
+    public static final String MEDIUM = "medium";
+
+    private String imageId;
+    private String contentType;
+    private String hash;
+    private Date createdAt;
+    private int width;
+    private int height;
+
+    public static ImageRendition original(Product product) {
+        return new ImageRendition(product.getImageId(), product.getImageType(), product.getImageHash(),
+                product.getImageUploadedAt(), 0, 0);
+    }
+}
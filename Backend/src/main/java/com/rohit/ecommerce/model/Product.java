@@ -2,20 +2,37 @@ package com.rohit.ecommerce.model;
 
 import java.math.BigDecimal;
 import java.util.Date;
+import java.util.Map;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Document(collection = "products")
+// Keyset pagination indexes, one per sort key with _id as tie-breaker (see ProductSort)
+@CompoundIndexes({
+    @CompoundIndex(name = "name_id", def = "{ 'name': 1, '_id': 1 }"),
+    @CompoundIndex(name = "price_id", def = "{ 'price': 1, '_id': 1 }"),
+    @CompoundIndex(name = "releaseDate_id", def = "{ 'releaseDate': 1, '_id': 1 }"),
+    // Browse filters, category and brand equality first, then the price range
+    @CompoundIndex(name = "category_brand_price", def = "{ 'category': 1, 'brand': 1, 'price': 1 }"),
+    @CompoundIndex(name = "brand_price", def = "{ 'brand': 1, 'price': 1 }")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@Builder(toBuilder = true)
 public class Product {
 
     @Id
@@ -23,13 +40,20 @@ public class Product {
     private String name;
     private String description;
     private String brand;
+    @Field(targetType = FieldType.DECIMAL128) // Stored as a number so price sorts and compares numerically
     private BigDecimal price;
     private String category;
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
     private Date releaseDate;
     private boolean available;
     private int stockQuantity;
+    private Long version; // Incremented on every write, PATCH with If-Match only applies to an unchanged product
     private String imageName;
     private String imageType;
-    private byte[] imageData; // MongoDB can handle binary data directly
+    @JsonIgnore // Internal to the ImageStore, clients load images by product id
+    private String imageId; // Reference to the image bytes in the ImageStore
+    private String imageHash; // SHA-256 of the image bytes, used as ETag and as version in image URLs
+    private Date imageUploadedAt;
+    @JsonIgnore // Clients ask for a rendition with ?size=, the store ids and hashes stay server-side
+    private Map<String, ImageRendition> imageRenditions; // Resized copies by size name, filled in after upload
 }
@@ -0,0 +1,20 @@
+package com.rohit.ecommerce.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Answer to a batch lookup of products by id (POST /api/products/batch).
+ * items are in the order the ids were asked for, each id once; missing lists the ids that have no product.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductBatch<T> {
+
+    private List<T> items;
+    private List<String> missing;
+}
@@ -0,0 +1,18 @@
+package com.rohit.ecommerce.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Body of POST /api/products/batch, e.g. { "ids": ["6650...", "6651..."] }
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductBatchRequest {
+
+    private List<String> ids;
+}
@@ -0,0 +1,21 @@
+package com.rohit.ecommerce.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A keyset page of the products matching a browse filter, with the facet counts of the whole match.
+ * nextCursor works as in ProductPage.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductBrowsePage {
+
+    private List<ProductSummary> items;
+    private String nextCursor;
+    private ProductFacets facets;
+}
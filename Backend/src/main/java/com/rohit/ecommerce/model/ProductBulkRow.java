@@ -0,0 +1,40 @@
+package com.rohit.ecommerce.model;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of a bulk import or export (NDJSON or CSV).
+ * Carries the catalog fields only, images are managed through the product image endpoints.
+ * The property order is the CSV column order.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonPropertyOrder({ "id", "name", "description", "brand", "price", "category", "releaseDate", "available", "stockQuantity" })
+public class ProductBulkRow {
+
+    private String id; // Empty to create a new product, otherwise the product is created or updated with this id
+    private String name;
+    private String description;
+    private String brand;
+    private BigDecimal price;
+    private String category;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private Date releaseDate;
+    private boolean available;
+    private int stockQuantity;
+
+    public static ProductBulkRow of(Product product) {
+        return new ProductBulkRow(product.getId(), product.getName(), product.getDescription(), product.getBrand(),
+                product.getPrice(), product.getCategory(), product.getReleaseDate(), product.isAvailable(),
+                product.getStockQuantity());
+    }
+}
@@ -0,0 +1,40 @@
+package com.rohit.ecommerce.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counts of the products matching a browse filter, by category, by brand and by price range.
+ * Categories and brands are the most frequent values first.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductFacets {
+
+    private long total;
+    private List<ValueCount> categories;
+    private List<ValueCount> brands;
+    private List<PriceRange> prices;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ValueCount {
+        private String value;
+        private long count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class PriceRange {
+        private BigDecimal min; // Inclusive
+        private BigDecimal max; // Exclusive, null for the open-ended last range
+        private long count;
+    }
+}
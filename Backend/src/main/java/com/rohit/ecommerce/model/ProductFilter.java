@@ -0,0 +1,23 @@
+package com.rohit.ecommerce.model;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Browse filters, each one is optional. Also the key of the cached facet counts,
+ * so prices are kept without trailing zeros (10 and 10.00 are the same filter).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductFilter {
+
+    private String category;
+    private String brand;
+    private BigDecimal minPrice; // Inclusive
+    private BigDecimal maxPrice; // Inclusive
+    private Boolean available;
+}
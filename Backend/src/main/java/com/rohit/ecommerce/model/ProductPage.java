@@ -0,0 +1,20 @@
+package com.rohit.ecommerce.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of a keyset-paginated product listing or search.
+ * nextCursor is null on the last page, otherwise pass it back as the cursor parameter to get the next page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductPage {
+
+    private List<ProductSummary> items;
+    private String nextCursor;
+}
@@ -0,0 +1,37 @@
+package com.rohit.ecommerce.model;
+
+/**
+ * Sort keys supported by the paginated product listing and search.
+ * Each key is backed by a compound index on (field, _id) declared on Product,
+ * the _id acts as tie-breaker so the keyset order is total.
+ */
+public enum ProductSort {
+
+    NAME("name"),
+    PRICE("price"),
+    RELEASE_DATE("releaseDate"),
+    // Search score, only valid for /api/products/search where results come from the search index
+    RELEVANCE("relevance");
+
+    private final String field;
+
+    ProductSort(String field) {
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Accepts the field name as used in the JSON (name, price, releaseDate), case-insensitive
+     */
+    public static ProductSort fromParam(String param) {
+        for (ProductSort sort : values()) {
+            if (sort.field.equalsIgnoreCase(param)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sort key: " + param);
+    }
+}
@@ -0,0 +1,40 @@
+package com.rohit.ecommerce.model;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Read model for product listings and search results.
+ * Only these fields are requested from MongoDB, the description and image fields are never loaded.
+ * Use Product for the full details of a single product.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSummary {
+
+    @Id
+    private String id;
+    private String name;
+    private String brand;
+    private BigDecimal price;
+    private String category;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private Date releaseDate;
+    private boolean available;
+    private int stockQuantity;
+    private String imageHash; // Lets clients request /api/product/{id}/image?v={imageHash}, which is cached as immutable
+
+    public static ProductSummary of(Product product) {
+        return new ProductSummary(product.getId(), product.getName(), product.getBrand(), product.getPrice(),
+                product.getCategory(), product.getReleaseDate(), product.isAvailable(), product.getStockQuantity(), product.getImageHash());
+    }
+}
@@ -0,0 +1,45 @@
+package com.rohit.ecommerce.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * State of a product change accepted with Prefer: respond-async, as returned by GET /api/products/writes/{operationId}.
+ * QUEUED until the write-behind queue flushes it, then APPLIED, NOT_FOUND (no product with this id) or FAILED.
+ * Stored in MongoDB so any instance can answer the poll. MongoDB deletes it at expiresAt: status-ttl after it
+ * completed, or pending-ttl after it was accepted if the completion was never written (e.g. the instance died).
+ */
+@Document(collection = "product_write_operations")
+@Getter
+@ToString
+@AllArgsConstructor
+public class ProductWriteOperation {
+
+    public enum Status {
+        QUEUED, APPLIED, NOT_FOUND, FAILED
+    }
+
+    @Id
+    private final String operationId;
+    private final String productId;
+    private final Status status;
+    private final String error;
+    private final Date acceptedAt;
+    private final Date completedAt;
+    @JsonIgnore
+    @Indexed(name = "expiresAt_ttl", expireAfter = "0s")
+    private final Date expiresAt;
+
+    public static ProductWriteOperation queued(String operationId, String productId, Date expiresAt) {
+        return new ProductWriteOperation(operationId, productId, Status.QUEUED, null, new Date(), null, expiresAt);
+    }
+}
@@ -0,0 +1,44 @@
+package com.rohit.ecommerce.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stock taken out of a product for a checkout in progress.
+ * The quantity is subtracted from the product when the reservation is made. Committing keeps it subtracted,
+ * releasing or letting it expire puts it back.
+ */
+@Document(collection = "stock_reservations")
+// Lets the expiry sweep find the held reservations that ran out
+@CompoundIndex(name = "status_expiresAt", def = "{ 'status': 1, 'expiresAt': 1 }")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockReservation {
+
+    public enum Status {
+        HELD,
+        COMMITTED,
+        RELEASED,
+        EXPIRED
+    }
+
+    @Id
+    private String id;
+    private String productId;
+    private int quantity;
+    private String owner; // Email of the user who made it, only they can commit or release it
+    private Status status;
+    private Date createdAt;
+    private Date expiresAt;
+    @Indexed(name = "closedAt_ttl", expireAfter = "7d")
+    private Date closedAt; // When it left HELD, MongoDB deletes closed reservations a week later
+}
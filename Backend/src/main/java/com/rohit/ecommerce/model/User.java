@@ -1,6 +1,7 @@
 package com.rohit.ecommerce.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import lombok.AllArgsConstructor;
@@ -17,7 +18,10 @@ public class User {
     @Id
     private String id;
     private String username;
+    // BCrypt hash, accounts registered before hashing keep their plaintext until their next login
     private String password;
+    // Unique, so concurrent registrations with the same email can't both succeed
+    @Indexed(name = "email_unique", unique = true)
     private String email;
     private String isAdmin;
 
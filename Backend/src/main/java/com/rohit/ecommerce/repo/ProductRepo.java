@@ -1,26 +1,37 @@
 package com.rohit.ecommerce.repo;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductSummary;
 
 @Repository
-public interface ProductRepo extends MongoRepository<Product, String> {
+public interface ProductRepo extends MongoRepository<Product, String>, ProductRepoCustom {
     // This interface will automatically provide CRUD operations for Product entity
-    // MongoDB query methods using regex for case-insensitive search
-    
-    @Query("{ $or: [ " +
-           "{ 'name': { $regex: ?0, $options: 'i' } }, " +
-           "{ 'description': { $regex: ?0, $options: 'i' } }, " +
-           "{ 'brand': { $regex: ?0, $options: 'i' } }, " +
-           "{ 'category': { $regex: ?0, $options: 'i' } } " +
-           "] }")
-    List<Product> searchProducts(String keyword);
-    
+    // Keyword search is served by the in-memory ProductSearchIndex instead of $regex queries
+
+    // Listing that projects to ProductSummary, so only the summary fields leave MongoDB
+    String SUMMARY_FIELDS = "{ 'name': 1, 'brand': 1, 'price': 1, 'category': 1, 'releaseDate': 1, 'available': 1, 'stockQuantity': 1, 'imageHash': 1 }";
+
+    @Query(value = "{}", fields = SUMMARY_FIELDS)
+    List<ProductSummary> findAllSummaries();
+
+    // Same projection as a cursor, for CatalogSnapshot
+    @Query(value = "{}", fields = SUMMARY_FIELDS)
+    Stream<ProductSummary> streamAllSummaries();
+
+    // Batch lookup by id with one $in query, projected to the ProductSummary fields
+    List<ProductSummary> findSummariesByIdIn(Collection<String> ids);
+
+    // Cursor over the whole collection, used to (re)build in-memory structures without loading a List
+    Stream<Product> streamAllBy();
+
     // Additional MongoDB-specific query methods you can use:
     List<Product> findByNameContainingIgnoreCase(String name);
     List<Product> findByCategory(String category);
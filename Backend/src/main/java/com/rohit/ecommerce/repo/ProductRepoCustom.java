@@ -0,0 +1,34 @@
+package com.rohit.ecommerce.repo;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.rohit.ecommerce.model.ProductFacets;
+import com.rohit.ecommerce.model.ProductSort;
+import com.rohit.ecommerce.model.ProductSummary;
+import com.rohit.ecommerce.util.ProductCursor;
+
+/**
+ * Queries on products that can't be expressed as derived or @Query methods, implemented in ProductRepoImpl
+ */
+public interface ProductRepoCustom {
+
+    /**
+     * Keyset page of product summaries matching the filter, ordered by (sort field, _id)
+     * @param filter Extra conditions, may be empty
+     * @param after Cursor of the last product of the previous page, null for the first page
+     * @param limit Maximum number of summaries to return
+     */
+    List<ProductSummary> findSummaryPage(Criteria filter, ProductSort sort, Sort.Direction direction, ProductCursor after, int limit);
+
+    /**
+     * Facet counts of the products matching the filter, computed by one $facet aggregation
+     * @param priceBoundaries Strictly ascending lower bounds of the price ranges, at least two, the last range is
+     *                        open-ended. Prices below the first boundary are in no range.
+     * @param maxValues Most frequent categories and brands to return
+     */
+    ProductFacets findFacets(Criteria filter, List<BigDecimal> priceBoundaries, int maxValues);
+}
@@ -0,0 +1,143 @@
+package com.rohit.ecommerce.repo;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductFacets;
+import com.rohit.ecommerce.model.ProductSort;
+import com.rohit.ecommerce.model.ProductSummary;
+import com.rohit.ecommerce.util.ProductCursor;
+
+/**
+ * Custom ProductRepo methods, picked up by Spring Data through the Impl suffix
+ */
+public class ProductRepoImpl implements ProductRepoCustom {
+
+    // $bucket id of the prices below the first boundary, a string so it can't be mistaken for a range
+    static final String BELOW_PRICE_RANGES = "below";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<ProductSummary> findSummaryPage(Criteria filter, ProductSort sort, Sort.Direction direction, ProductCursor after, int limit) {
+        List<Criteria> conditions = new ArrayList<>();
+        if (filter != null && !filter.getCriteriaObject().isEmpty()) {
+            conditions.add(filter);
+        }
+        if (after != null) {
+            conditions.add(seekAfter(sort.getField(), direction, after));
+        }
+        Query query = conditions.isEmpty() ? new Query() : Query.query(new Criteria().andOperator(conditions));
+        query.with(Sort.by(direction, sort.getField()).and(Sort.by(direction, "id"))).limit(limit);
+
+        // as(ProductSummary.class) turns into a field projection, the query is still mapped against Product
+        return mongoTemplate.query(Product.class).as(ProductSummary.class).matching(query).all();
+    }
+
+    @Override
+    public ProductFacets findFacets(Criteria filter, List<BigDecimal> priceBoundaries, int maxValues) {
+        // $bucket boundaries are sent as doubles, BigDecimal literals would be written as strings.
+        // MongoDB compares them numerically with the Decimal128 prices. Infinity closes the open-ended last range,
+        // so only prices below the first boundary are left for the default bucket.
+        Object[] boundaries = Stream.concat(priceBoundaries.stream().map(BigDecimal::doubleValue),
+                Stream.of(Double.POSITIVE_INFINITY)).toArray();
+
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (filter != null && !filter.getCriteriaObject().isEmpty()) {
+            stages.add(Aggregation.match(filter));
+        }
+        stages.add(Aggregation.facet(Aggregation.count().as("count")).as("total")
+                .and(Aggregation.sortByCount("category"), Aggregation.limit(maxValues)).as("categories")
+                .and(Aggregation.sortByCount("brand"), Aggregation.limit(maxValues)).as("brands")
+                .and(Aggregation.match(Criteria.where("price").ne(null)),
+                        Aggregation.bucket("price").withBoundaries(boundaries).withDefaultBucket(BELOW_PRICE_RANGES)
+                                .andOutputCount().as("count"))
+                .as("prices"));
+
+        Document result = mongoTemplate.aggregate(Aggregation.newAggregation(Product.class, stages), Document.class)
+                .getUniqueMappedResult();
+        List<Document> total = result.getList("total", Document.class);
+        return new ProductFacets(
+                total.isEmpty() ? 0 : count(total.get(0)),
+                valueCounts(result.getList("categories", Document.class)),
+                valueCounts(result.getList("brands", Document.class)),
+                priceRanges(result.getList("prices", Document.class), priceBoundaries));
+    }
+
+    private static List<ProductFacets.ValueCount> valueCounts(List<Document> buckets) {
+        List<ProductFacets.ValueCount> counts = new ArrayList<>();
+        for (Document bucket : buckets) {
+            // Products without a value are counted in the total only
+            if (bucket.get("_id") instanceof String value) {
+                counts.add(new ProductFacets.ValueCount(value, count(bucket)));
+            }
+        }
+        return counts;
+    }
+
+    private static List<ProductFacets.PriceRange> priceRanges(List<Document> buckets, List<BigDecimal> boundaries) {
+        // Empty buckets are left out by $bucket, list every range so the client gets a stable set
+        long[] counts = new long[boundaries.size()];
+        for (Document bucket : buckets) {
+            // Prices below the first range are counted in the total only
+            if (!(bucket.get("_id") instanceof Number id)) {
+                continue;
+            }
+            double lower = id.doubleValue();
+            for (int i = 0; i < boundaries.size(); i++) {
+                if (boundaries.get(i).doubleValue() == lower) {
+                    counts[i] = count(bucket);
+                }
+            }
+        }
+        List<ProductFacets.PriceRange> ranges = new ArrayList<>();
+        for (int i = 0; i < boundaries.size(); i++) {
+            BigDecimal max = i + 1 < boundaries.size() ? boundaries.get(i + 1) : null;
+            ranges.add(new ProductFacets.PriceRange(boundaries.get(i), max, counts[i]));
+        }
+        return ranges;
+    }
+
+    private static long count(Document document) {
+        return ((Number) document.get("count")).longValue();
+    }
+
+    /**
+     * Everything strictly after (value, id) in the (field, _id) order.
+     * MongoDB sorts missing/null values before everything else, and $gt/$lt never match null,
+     * so null sort values need their own branches.
+     */
+    private Criteria seekAfter(String field, Sort.Direction direction, ProductCursor after) {
+        Object value = after.getValue();
+        if (direction.isAscending()) {
+            if (value == null) {
+                return new Criteria().orOperator(
+                        new Criteria().andOperator(Criteria.where(field).is(null), Criteria.where("id").gt(after.getId())),
+                        Criteria.where(field).ne(null));
+            }
+            return new Criteria().orOperator(
+                    Criteria.where(field).gt(value),
+                    new Criteria().andOperator(Criteria.where(field).is(value), Criteria.where("id").gt(after.getId())));
+        }
+        if (value == null) {
+            return new Criteria().andOperator(Criteria.where(field).is(null), Criteria.where("id").lt(after.getId()));
+        }
+        return new Criteria().orOperator(
+                Criteria.where(field).lt(value),
+                new Criteria().andOperator(Criteria.where(field).is(value), Criteria.where("id").lt(after.getId())),
+                Criteria.where(field).is(null));
+    }
+}
@@ -12,7 +12,6 @@ public interface UserRepo extends MongoRepository<User, String> {
     
     // Additional methods can be defined here as per requirements
 
-    User findByEmailAndPassword(String email, String password);
-    // This method can be used for authentication purposes
+    // Passwords are hashed, AuthService looks the user up by email and checks the hash itself
     User findByEmail(String email);
 }
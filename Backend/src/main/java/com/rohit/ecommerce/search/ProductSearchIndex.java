@@ -0,0 +1,306 @@
+package com.rohit.ecommerce.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.rohit.ecommerce.event.CatalogChangedEvent;
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductSummary;
+import com.rohit.ecommerce.repo.ProductRepo;
+
+/**
+ * In-memory inverted index over product name, brand, category and description.
+ *
+ * Terms come from the {@link Tokenizer} and are kept in a sorted map, so a query term matches
+ * both the exact term and every indexed term it is a prefix of ("lap" finds "laptop").
+ * All query terms must match; the score adds up the field weights of the matched terms,
+ * with prefix matches counting half.
+ *
+ * The index is loaded from MongoDB once (at startup, or on the first search) and then kept
+ * current from ProductChangedEvents, so searches never touch the database.
+ * Reads are lock-free, writes are serialized. A write that leaves the indexed text as it was (price,
+ * stock) only replaces the product's summary and keeps its postings.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float BRAND_WEIGHT = 2f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_FACTOR = 0.5f;
+
+    private static final Comparator<SearchHit> RANKING = Comparator.comparingDouble(SearchHit::getScore).reversed()
+            .thenComparing(hit -> hit.getProduct().getName(), Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(hit -> hit.getProduct().getId());
+
+    @Autowired
+    private ProductRepo repo;
+
+    @Value("${app.search.preload-on-startup:true}")
+    private boolean preloadOnStartup;
+
+    // A lock instead of a monitor: the rebuild blocks on MongoDB, which would pin a virtual thread
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile State state = new State();
+    private volatile boolean loaded;
+    // Ids written while a rebuild streams the collection, re-applied before the rebuilt state is swapped in
+    private Set<String> changedDuringRebuild;
+
+    /**
+     * @return Matching products, best match first. Empty if the keyword has no searchable terms.
+     */
+    public List<SearchHit> search(String keyword) {
+        ensureLoaded();
+        Set<String> queryTerms = Tokenizer.tokenize(keyword);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        State current = state;
+        Map<String, Float> scores = null;
+        for (String term : queryTerms) {
+            Map<String, Float> termScores = current.match(term);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                scores.replaceAll((id, score) -> score + termScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>(scores.size());
+        for (Map.Entry<String, Float> entry : scores.entrySet()) {
+            IndexedProduct product = current.products.get(entry.getKey());
+            if (product != null) {
+                hits.add(new SearchHit(product.summary(), entry.getValue()));
+            }
+        }
+        hits.sort(RANKING);
+        return hits;
+    }
+
+    public synchronized void index(Product product) {
+        state.put(product);
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(product.getId());
+        }
+    }
+
+    /**
+     * Sets the stock shown in the hits of a product, without touching its terms
+     * @return false if the product isn't indexed while the index is being rebuilt, it has to be indexed as a whole then
+     */
+    public synchronized boolean updateStock(String productId, int stockQuantity, boolean available) {
+        if (!state.updateStock(productId, stockQuantity, available)) {
+            return changedDuringRebuild == null;
+        }
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(productId);
+        }
+        return true;
+    }
+
+    public synchronized void remove(String productId) {
+        state.remove(productId);
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(productId);
+        }
+    }
+
+    /**
+     * Reloads the whole index from MongoDB. Searches keep using the previous state until the new one is complete.
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            doRebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void doRebuild() {
+        synchronized (this) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        State rebuilt = new State();
+        try (Stream<Product> products = repo.streamAllBy()) {
+            products.forEach(rebuilt::put);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            // The live state already holds the latest version of anything written meanwhile
+            for (String id : changedDuringRebuild) {
+                IndexedProduct latest = state.products.get(id);
+                if (latest != null) {
+                    rebuilt.put(id, latest);
+                } else {
+                    rebuilt.remove(id);
+                }
+            }
+            changedDuringRebuild = null;
+            state = rebuilt;
+            loaded = true;
+        }
+        log.info("Search index built with {} products", rebuilt.products.size());
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            rebuildLock.lock();
+            try {
+                if (!loaded) {
+                    doRebuild();
+                }
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (!preloadOnStartup) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // The first search retries the load
+            log.error("Could not preload the search index", e);
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            remove(event.getProductId());
+            return;
+        }
+        if (event.getType() == ProductChangedEvent.Type.STOCK
+                && updateStock(event.getProductId(), event.getStockQuantity(), event.getAvailable())) {
+            return;
+        }
+        Product product = event.getProduct() != null ? event.getProduct() : repo.findById(event.getProductId()).orElse(null);
+        if (product != null) {
+            index(product);
+        } else {
+            remove(event.getProductId());
+        }
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // Stale until the next search loads it again
+            loaded = false;
+            log.error("Could not rebuild the search index after {}", event.getReason(), e);
+        }
+    }
+
+    private record IndexedProduct(ProductSummary summary, Map<String, Float> terms) {
+    }
+
+    private static final class State {
+
+        private final Map<String, IndexedProduct> products = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<String, Map<String, Float>> postings = new ConcurrentSkipListMap<>();
+
+        void put(Product product) {
+            Map<String, Float> terms = new HashMap<>();
+            addTerms(terms, product.getName(), NAME_WEIGHT);
+            addTerms(terms, product.getBrand(), BRAND_WEIGHT);
+            addTerms(terms, product.getCategory(), CATEGORY_WEIGHT);
+            addTerms(terms, product.getDescription(), DESCRIPTION_WEIGHT);
+            put(product.getId(), new IndexedProduct(ProductSummary.of(product), terms));
+        }
+
+        void put(String id, IndexedProduct product) {
+            IndexedProduct old = products.get(id);
+            if (old != null && old.terms().equals(product.terms())) {
+                // Same text, the postings already hold the right weights
+                products.put(id, new IndexedProduct(product.summary(), old.terms()));
+                return;
+            }
+            remove(id);
+            products.put(id, product);
+            product.terms().forEach((term, weight) ->
+                    postings.computeIfAbsent(term, t -> new ConcurrentHashMap<>()).put(id, weight));
+        }
+
+        boolean updateStock(String id, int stockQuantity, boolean available) {
+            IndexedProduct old = products.get(id);
+            if (old == null) {
+                return false;
+            }
+            ProductSummary summary = old.summary();
+            products.put(id, new IndexedProduct(new ProductSummary(summary.getId(), summary.getName(), summary.getBrand(),
+                    summary.getPrice(), summary.getCategory(), summary.getReleaseDate(), available, stockQuantity,
+                    summary.getImageHash()), old.terms()));
+            return true;
+        }
+
+        void remove(String id) {
+            IndexedProduct old = products.remove(id);
+            if (old == null) {
+                return;
+            }
+            for (String term : old.terms().keySet()) {
+                postings.computeIfPresent(term, (t, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+
+        /**
+         * Scores of the products containing the term, or a term starting with it
+         */
+        Map<String, Float> match(String term) {
+            Map<String, Float> scores = new HashMap<>();
+            Map<String, Float> exact = postings.get(term);
+            if (exact != null) {
+                scores.putAll(exact);
+            }
+            for (Map<String, Float> ids : postings.subMap(term, false, term + Character.MAX_VALUE, false).values()) {
+                ids.forEach((id, weight) -> scores.merge(id, weight * PREFIX_FACTOR, Math::max));
+            }
+            return scores;
+        }
+
+        private static void addTerms(Map<String, Float> terms, String text, float weight) {
+            for (String term : Tokenizer.tokenize(text)) {
+                terms.merge(term, weight, Float::sum);
+            }
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.rohit.ecommerce.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.rohit.ecommerce.event.CatalogChangedEvent;
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.repo.ProductRepo;
+
+/**
+ * Typeahead suggestions for product names, brands and categories, served from a SuggestionTrie.
+ *
+ * Suggestions are ranked by popularity: a product by the number of times its details were viewed on this
+ * instance, a brand or category by the products carrying it plus their views. Views are counted as they
+ * happen and folded into the trie every app.suggest.popularity-interval, so a view costs one counter increment.
+ * The counts live in memory and start from zero with each instance.
+ *
+ * Like ProductSearchIndex the trie is loaded from MongoDB once (at startup, or on the first lookup) and then
+ * kept current from ProductChangedEvents, so lookups never touch the database.
+ */
+@Component
+public class ProductSuggester {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSuggester.class);
+
+    @Autowired
+    private ProductRepo repo;
+
+    @Value("${app.suggest.preload-on-startup:true}")
+    private boolean preloadOnStartup;
+
+    @Value("${app.suggest.max-size:10}")
+    private int maxSize;
+
+    // A lock instead of a monitor: the rebuild blocks on MongoDB, which would pin a virtual thread
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile State state;
+    private volatile boolean loaded;
+    // Ids written while a rebuild streams the collection, re-applied before the rebuilt state is swapped in
+    private Set<String> changedDuringRebuild;
+    // Views since the last fold, by product id
+    private final Map<String, LongAdder> newViews = new ConcurrentHashMap<>();
+    // Views folded so far, by product id. Kept across rebuilds
+    private final Map<String, Long> views = new HashMap<>();
+
+    /**
+     * @param limit At most this many, capped at app.suggest.max-size
+     * @return The most popular suggestions with a word starting with prefix, empty for a prefix without letters or digits
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        ensureLoaded();
+        List<SuggestionTrie.Entry> entries = state.trie.top(prefix);
+        return entries.stream().limit(Math.max(0, limit)).map(SuggestionTrie.Entry::suggestion).toList();
+    }
+
+    /**
+     * Counts one view of the product details towards its popularity
+     */
+    public void recordView(String productId) {
+        newViews.computeIfAbsent(productId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Applies the views counted since the last call to the ranking
+     */
+    @Scheduled(fixedDelayString = "${app.suggest.popularity-interval:30s}")
+    public synchronized void applyViews() {
+        if (newViews.isEmpty()) {
+            return;
+        }
+        for (String productId : List.copyOf(newViews.keySet())) {
+            long count = newViews.remove(productId).sum();
+            views.merge(productId, count, Long::sum);
+            if (state != null) {
+                state.addViews(productId, count);
+            }
+        }
+    }
+
+    public synchronized void index(Product product) {
+        state().put(IndexedProduct.of(product));
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(product.getId());
+        }
+    }
+
+    public synchronized void remove(String productId) {
+        state().delete(productId);
+        views.remove(productId);
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(productId);
+        }
+    }
+
+    /**
+     * Reloads every product from MongoDB. Lookups keep using the previous trie until the new one is complete.
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            doRebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void doRebuild() {
+        Map<String, Long> viewsSoFar;
+        synchronized (this) {
+            changedDuringRebuild = new HashSet<>();
+            viewsSoFar = new HashMap<>(views);
+        }
+        State rebuilt = new State(maxSize, viewsSoFar);
+        try (Stream<Product> products = repo.streamAllBy()) {
+            rebuilt.load(products);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            // The live state already holds the latest version of anything written meanwhile
+            for (String id : changedDuringRebuild) {
+                IndexedProduct latest = state != null ? state.products.get(id) : null;
+                if (latest != null) {
+                    rebuilt.put(latest);
+                } else {
+                    rebuilt.delete(id);
+                }
+            }
+            // Views folded while the rebuild ran
+            views.forEach((id, count) -> {
+                long missed = count - viewsSoFar.getOrDefault(id, 0L);
+                if (missed > 0) {
+                    rebuilt.addViews(id, missed);
+                }
+            });
+            changedDuringRebuild = null;
+            state = rebuilt;
+            loaded = true;
+        }
+        log.info("Suggestion trie built with {} entries", rebuilt.trie.entryCount());
+    }
+
+    // Changes that arrive before the first load go into an empty state, the load re-applies them
+    private State state() {
+        if (state == null) {
+            state = new State(maxSize, new HashMap<>(views));
+        }
+        return state;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            rebuildLock.lock();
+            try {
+                if (!loaded) {
+                    doRebuild();
+                }
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (!preloadOnStartup) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // The first lookup retries the load
+            log.error("Could not preload the suggestion trie", e);
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getType() == ProductChangedEvent.Type.STOCK) {
+            // Suggestions don't show stock
+            return;
+        }
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            remove(event.getProductId());
+            return;
+        }
+        Product product = event.getProduct() != null ? event.getProduct() : repo.findById(event.getProductId()).orElse(null);
+        if (product != null) {
+            index(product);
+        } else {
+            remove(event.getProductId());
+        }
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // Stale until the next lookup loads it again
+            loaded = false;
+            log.error("Could not rebuild the suggestion trie after {}", event.getReason(), e);
+        }
+    }
+
+    /**
+     * The trie with the products and brand/category totals it was built from. Only changed under the
+     * ProductSuggester monitor (or before it is published), read without locks through the trie.
+     */
+    private static final class State {
+
+        private final SuggestionTrie trie;
+        private final Map<String, Long> views;
+        private final Map<String, IndexedProduct> products = new HashMap<>();
+        private final Map<String, Group> groups = new HashMap<>();
+
+        State(int size, Map<String, Long> views) {
+            this.trie = new SuggestionTrie(size);
+            this.views = views;
+        }
+
+        void load(Stream<Product> all) {
+            List<SuggestionTrie.Entry> entries = new ArrayList<>();
+            all.map(IndexedProduct::of).forEach(product -> {
+                products.put(product.id(), product);
+                entries.add(productEntry(product));
+                group(Suggestion.Type.BRAND, product.brand(), popularity(product.id()), false);
+                group(Suggestion.Type.CATEGORY, product.category(), popularity(product.id()), false);
+            });
+            groups.values().forEach(group -> entries.add(group.entry()));
+            trie.putAll(entries);
+        }
+
+        void put(IndexedProduct product) {
+            if (product.equals(products.get(product.id()))) {
+                // Price, stock and the like don't change the suggestions
+                return;
+            }
+            remove(product.id());
+            products.put(product.id(), product);
+            trie.put(productEntry(product));
+            group(Suggestion.Type.BRAND, product.brand(), popularity(product.id()), true);
+            group(Suggestion.Type.CATEGORY, product.category(), popularity(product.id()), true);
+        }
+
+        void remove(String productId) {
+            IndexedProduct old = products.remove(productId);
+            if (old == null) {
+                return;
+            }
+            trie.remove(productKey(productId));
+            group(Suggestion.Type.BRAND, old.brand(), -popularity(productId), true);
+            group(Suggestion.Type.CATEGORY, old.category(), -popularity(productId), true);
+        }
+
+        void delete(String productId) {
+            remove(productId);
+            views.remove(productId);
+        }
+
+        void addViews(String productId, long count) {
+            views.merge(productId, count, Long::sum);
+            IndexedProduct product = products.get(productId);
+            if (product == null) {
+                return;
+            }
+            trie.put(productEntry(product));
+            group(Suggestion.Type.BRAND, product.brand(), count, true);
+            group(Suggestion.Type.CATEGORY, product.category(), count, true);
+        }
+
+        // A product counts once plus its views towards its brand and category
+        private long popularity(String productId) {
+            return 1 + views.getOrDefault(productId, 0L);
+        }
+
+        private SuggestionTrie.Entry productEntry(IndexedProduct product) {
+            return new SuggestionTrie.Entry(productKey(product.id()),
+                    new Suggestion(product.name(), Suggestion.Type.PRODUCT, product.id()),
+                    views.getOrDefault(product.id(), 0L));
+        }
+
+        private void group(Suggestion.Type type, String text, long weightChange, boolean update) {
+            String normalized = SuggestionTrie.normalize(text);
+            if (normalized.isEmpty()) {
+                return;
+            }
+            String key = type.name().toLowerCase(Locale.ROOT) + ":" + normalized;
+            Group group = groups.computeIfAbsent(key, k -> new Group(key, new Suggestion(text.trim(), type, null)));
+            group.weight += weightChange;
+            if (group.weight <= 0) {
+                groups.remove(key);
+                if (update) {
+                    trie.remove(key);
+                }
+            } else if (update) {
+                trie.put(group.entry());
+            }
+        }
+
+        private static String productKey(String productId) {
+            return "product:" + productId;
+        }
+    }
+
+    // The fields suggestions are made from
+    private record IndexedProduct(String id, String name, String brand, String category) {
+
+        static IndexedProduct of(Product product) {
+            return new IndexedProduct(product.getId(), product.getName(), product.getBrand(), product.getCategory());
+        }
+    }
+
+    private static final class Group {
+
+        private final String key;
+        // Spelling of the first product seen with it
+        private final Suggestion suggestion;
+        private long weight;
+
+        Group(String key, Suggestion suggestion) {
+            this.key = key;
+            this.suggestion = suggestion;
+        }
+
+        SuggestionTrie.Entry entry() {
+            return new SuggestionTrie.Entry(key, suggestion, weight);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.rohit.ecommerce.search;
+
+import com.rohit.ecommerce.model.ProductSummary;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A product matching a search, with its relevance score (higher is better)
+ */
+@Getter
+@AllArgsConstructor
+public class SearchHit {
+
+    private final ProductSummary product;
+    private final double score;
+}
@@ -0,0 +1,27 @@
+package com.rohit.ecommerce.search;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * One typeahead suggestion: a product name (with the product id to open it), a brand or a category
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Suggestion {
+
+    public enum Type {
+        PRODUCT, BRAND, CATEGORY
+    }
+
+    private final String text;
+    private final Type type;
+    private final String productId; // Only for PRODUCT
+}
@@ -0,0 +1,256 @@
+package com.rohit.ecommerce.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prefix trie of typeahead entries. Every node keeps the best entries of its subtree, so a lookup walks
+ * the prefix and returns that list: the cost depends on the prefix length, not on the number of entries.
+ *
+ * An entry is found from the start of each word of its text ("Galaxy S24 Ultra" from "gal" and "s24 u").
+ * Its keys are the normalized text from each word on, cut at MAX_KEY_LENGTH characters. Children are kept
+ * in sorted arrays, and a node with one child and no entries of its own shares that child's list.
+ * Because one entry can sit under two keys of the same subtree, nodes keep twice as many entries as
+ * a lookup returns, so dropping the duplicates still leaves enough.
+ *
+ * Lookups are lock-free. Changes must not run concurrently with each other, ProductSuggester serializes them.
+ */
+final class SuggestionTrie {
+
+    static final int MAX_KEY_LENGTH = 48;
+
+    static final Comparator<Entry> RANKING = Comparator.comparingLong(Entry::weight).reversed()
+            .thenComparingInt(entry -> entry.suggestion().getText().length())
+            .thenComparing(entry -> entry.suggestion().getText())
+            .thenComparing(Entry::id);
+
+    /**
+     * @param id Identifies the entry across updates, e.g. "product:" + product id
+     * @param weight Popularity, higher ranks first
+     */
+    record Entry(String id, Suggestion suggestion, long weight) {
+    }
+
+    private final int size;
+    private final int capacity;
+    private final Node root = new Node();
+    // Entries by id, to find the keys an entry was stored under when it is replaced or removed
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * @param size Most entries a lookup returns
+     */
+    SuggestionTrie(int size) {
+        this.size = size;
+        this.capacity = 2 * size;
+    }
+
+    /**
+     * @return The best entries whose text has a word starting with prefix (then the words after it), best first
+     */
+    List<Entry> top(String prefix) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        Node node = root;
+        for (int i = 0; i < key.length() && i < MAX_KEY_LENGTH; i++) {
+            node = node.children.get(key.charAt(i));
+            if (node == null) {
+                return List.of();
+            }
+        }
+        List<Entry> best = new ArrayList<>(size);
+        Set<String> ids = new HashSet<>();
+        for (Entry entry : node.top) {
+            if (ids.add(entry.id()) && best.add(entry) && best.size() == size) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Adds the entry, or replaces the one with the same id
+     */
+    void put(Entry entry) {
+        remove(entry.id());
+        insert(entry, true);
+    }
+
+    /**
+     * Adds many entries and ranks every node once at the end, for loading a new trie
+     */
+    void putAll(Iterable<Entry> newEntries) {
+        for (Entry entry : newEntries) {
+            remove(entry.id());
+            insert(entry, false);
+        }
+        rankAll(root);
+    }
+
+    private void insert(Entry entry, boolean rank) {
+        entries.put(entry.id(), entry);
+        for (String key : keys(entry.suggestion().getText())) {
+            List<Node> path = new ArrayList<>(key.length() + 1);
+            Node node = root;
+            path.add(node);
+            for (int i = 0; i < key.length(); i++) {
+                char label = key.charAt(i);
+                Node child = node.children.get(label);
+                if (child == null) {
+                    child = new Node();
+                    node.children = node.children.with(label, child);
+                }
+                node = child;
+                path.add(node);
+            }
+            if (node.own == null) {
+                node.own = new HashMap<>(2);
+            }
+            node.own.put(entry.id(), entry);
+            if (rank) {
+                for (int i = path.size() - 1; i >= 0; i--) {
+                    path.get(i).rank(capacity);
+                }
+            }
+        }
+    }
+
+    private void rankAll(Node node) {
+        for (Node child : node.children.nodes()) {
+            rankAll(child);
+        }
+        node.rank(capacity);
+    }
+
+    void remove(String id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (String key : keys(entry.suggestion().getText())) {
+            List<Node> path = new ArrayList<>(key.length() + 1);
+            Node node = root;
+            path.add(node);
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children.get(key.charAt(i));
+                path.add(node);
+            }
+            if (node == null || node.own == null) {
+                continue;
+            }
+            node.own.remove(id);
+            if (node.own.isEmpty()) {
+                node.own = null;
+            }
+            for (int i = path.size() - 1; i >= 0; i--) {
+                Node current = path.get(i);
+                if (i > 0 && current.own == null && current.children.isEmpty()) {
+                    Node parent = path.get(i - 1);
+                    parent.children = parent.children.without(key.charAt(i - 1));
+                } else {
+                    current.rank(capacity);
+                }
+            }
+        }
+    }
+
+    int entryCount() {
+        return entries.size();
+    }
+
+    static String normalize(String text) {
+        return String.join(" ", Tokenizer.tokenize(text));
+    }
+
+    static Set<String> keys(String text) {
+        List<String> words = List.copyOf(Tokenizer.tokenize(text));
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < words.size(); i++) {
+            String key = String.join(" ", words.subList(i, words.size()));
+            keys.add(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key);
+        }
+        return keys;
+    }
+
+    private static final class Node {
+
+        private volatile Children children = Children.EMPTY;
+        private volatile List<Entry> top = List.of();
+        // Entries whose key ends here, only touched by writers
+        private Map<String, Entry> own;
+
+        void rank(int capacity) {
+            if (own == null && children.nodes.length == 1) {
+                top = children.nodes[0].top;
+                return;
+            }
+            List<Entry> candidates = new ArrayList<>();
+            if (own != null) {
+                candidates.addAll(own.values());
+            }
+            for (Node child : children.nodes) {
+                candidates.addAll(child.top);
+            }
+            candidates.sort(RANKING);
+            List<Entry> best = new ArrayList<>(Math.min(capacity, candidates.size()));
+            Set<String> ids = new HashSet<>();
+            for (Entry entry : candidates) {
+                if (ids.add(entry.id()) && best.add(entry) && best.size() == capacity) {
+                    break;
+                }
+            }
+            top = List.copyOf(best);
+        }
+    }
+
+    // Immutable, replaced as a whole so readers always see labels and nodes that belong together
+    private record Children(char[] labels, Node[] nodes) {
+
+        static final Children EMPTY = new Children(new char[0], new Node[0]);
+
+        Node get(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? nodes[index] : null;
+        }
+
+        boolean isEmpty() {
+            return labels.length == 0;
+        }
+
+        Children with(char label, Node node) {
+            int index = -Arrays.binarySearch(labels, label) - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newNodes = new Node[nodes.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(nodes, 0, newNodes, 0, index);
+            newLabels[index] = label;
+            newNodes[index] = node;
+            System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+            System.arraycopy(nodes, index, newNodes, index + 1, nodes.length - index);
+            return new Children(newLabels, newNodes);
+        }
+
+        Children without(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index < 0) {
+                return this;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newNodes = new Node[nodes.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(nodes, 0, newNodes, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(nodes, index + 1, newNodes, index, nodes.length - index - 1);
+            return new Children(newLabels, newNodes);
+        }
+    }
+}
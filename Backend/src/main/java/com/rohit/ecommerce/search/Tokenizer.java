@@ -0,0 +1,41 @@
+package com.rohit.ecommerce.search;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into lowercase, accent-free terms on anything that is not a letter or digit.
+ * Used for both indexed text and search keywords, so user input is never interpreted as a pattern.
+ */
+public final class Tokenizer {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private Tokenizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return stripped.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return The distinct terms in order of first appearance
+     */
+    public static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String term : SEPARATORS.split(normalize(text))) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+}
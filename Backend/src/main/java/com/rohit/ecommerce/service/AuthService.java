@@ -1,23 +1,68 @@
 package com.rohit.ecommerce.service;
 
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.Claims;
 import javax.crypto.SecretKey;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.rohit.ecommerce.cache.UserCache;
+import com.rohit.ecommerce.model.AuthPrincipal;
 import com.rohit.ecommerce.model.User;
 import com.rohit.ecommerce.repo.UserRepo;
 
 @Service
 public class AuthService {
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
     private static final String SECRET = "your-very-long-random-secret-key-string-should-be-at-least-32-bytes";
     private static final SecretKey SECRET_KEY = Keys.hmacShaKeyFor(SECRET.getBytes(java.nio.charset.StandardCharsets.UTF_8));
     private static final long EXPIRATION_TIME = 86400000; // 1 day in ms
+    // Parsers are immutable and thread-safe, one is enough for all requests
+    private static final JwtParser PARSER = Jwts.parser().verifyWith(SECRET_KEY).build();
+
+    private final Cache<String, AuthPrincipal> verifiedTokens;
+
+    @Autowired
+    public AuthService(@Value("${app.auth.token-cache.max-size:100000}") long tokenCacheSize) {
+        this(tokenCacheSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param cacheMaintenance Runs the token cache's evictions, Caffeine's default is the common pool. With
+     *                         Runnable::run a cache of size 0 drops every entry right away (AuthBenchmark).
+     */
+    public AuthService(long tokenCacheSize, Executor cacheMaintenance) {
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(tokenCacheSize)
+                .expireAfter(new TokenExpiry())
+                .executor(cacheMaintenance)
+                .build();
+    }
     
     /**
      * Returns the secret key used for JWT token verification
@@ -30,18 +75,82 @@ public class AuthService {
     @Autowired
     private UserRepo userRepo;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private volatile boolean uniqueEmailIndex;
+
+    /**
+     * Checks the password against the stored BCrypt hash. An account still holding a plaintext password
+     * gets it replaced by a hash on its first successful login.
+     * @return A JWT for the user, or null if the email or the password is wrong
+     * @throws java.util.concurrent.RejectedExecutionException if password hashing is overloaded
+     */
     public String authenticate(User user) {
-        if (userRepo.findByEmailAndPassword(user.getEmail(), user.getPassword()) != null) {
-            return generateJwtToken(user.getEmail());
+        User stored = userCache.get(user.getEmail(), userRepo::findByEmail);
+        String storedPassword = stored != null ? stored.getPassword() : null;
+        boolean valid;
+        if (storedPassword == null || PasswordHasher.isHash(storedPassword)) {
+            valid = passwordHasher.matches(user.getPassword(), storedPassword);
+        } else {
+            valid = MessageDigest.isEqual(storedPassword.getBytes(StandardCharsets.UTF_8),
+                    user.getPassword().getBytes(StandardCharsets.UTF_8));
+            if (valid) {
+                upgradePassword(stored, user.getPassword());
+            }
         }
-        return null;
+        return valid ? generateJwtToken(stored.getEmail()) : null;
     }
 
+    /**
+     * Stores the user with a hashed password. The unique index on email decides between concurrent
+     * registrations of the same email.
+     * @return false if the email is already registered
+     * @throws java.util.concurrent.RejectedExecutionException if password hashing is overloaded
+     * @throws IllegalStateException if the users collection has no unique email index
+     */
     public boolean register(User user) {
-        if (userRepo.findByEmail(user.getEmail()) != null) {
+        requireUniqueEmailIndex();
+        user.setPassword(passwordHasher.hash(user.getPassword()));
+        try {
+            userRepo.insert(user);
+        } catch (DuplicateKeyException e) {
             return false;
         }
-        return userRepo.save(user) != null;
+        userCache.invalidate(user.getEmail());
+        return true;
+    }
+
+    /**
+     * Without the index (schema setup disabled, or it failed) an insert would quietly store a second account
+     * for the email. Looked up until it is found, then trusted.
+     */
+    private void requireUniqueEmailIndex() {
+        if (uniqueEmailIndex) {
+            return;
+        }
+        uniqueEmailIndex = mongoTemplate.indexOps(User.class).getIndexInfo().stream()
+                .anyMatch(index -> index.isUnique() && index.isIndexForFields(List.of("email")));
+        if (!uniqueEmailIndex) {
+            throw new IllegalStateException("The users collection has no unique index on email");
+        }
+    }
+
+    // Only replaces the password it was read with, a failure leaves the plaintext for the next login
+    private void upgradePassword(User user, String password) {
+        try {
+            Query query = Query.query(Criteria.where("id").is(user.getId()).and("password").is(user.getPassword()));
+            mongoTemplate.updateFirst(query, Update.update("password", passwordHasher.hash(password)), User.class);
+            userCache.invalidate(user.getEmail());
+        } catch (RuntimeException e) {
+            log.warn("Could not hash the stored password of user {}", user.getId(), e);
+        }
     }
 
     public String generateJwtToken(String email) {
@@ -57,16 +166,83 @@ public class AuthService {
     }
 
     public boolean validateToken(String token) {
+        return verifyToken(token) != null;
+    }
+
+    /**
+     * Checks the signature and expiry of a token and returns its user.
+     * A valid token is only verified once, later calls with the same token are answered
+     * from a cache whose entries expire together with the token.
+     * @return The principal, or null if the token is invalid or expired
+     */
+    public AuthPrincipal verifyToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String key = tokenKey(token);
+        AuthPrincipal cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        AuthPrincipal principal = parseToken(token);
+        if (principal != null) {
+            verifiedTokens.put(key, principal);
+        }
+        return principal;
+    }
+
+    /**
+     * Signs and verifies throwaway tokens so JJWT is loaded and compiled before the first real sign-in.
+     * Bypasses the token cache.
+     */
+    public void warmUp(int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            if (parseToken(generateJwtToken("warm-up-" + i + "@localhost")) == null) {
+                throw new IllegalStateException("A freshly signed token did not verify");
+            }
+        }
+    }
+
+    private AuthPrincipal parseToken(String token) {
         try {
-            Claims claims = Jwts.parser()
-                .verifyWith(SECRET_KEY)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+            Claims claims = PARSER.parseSignedClaims(token).getPayload();
             Long exp = claims.get("exp", Long.class);
-            return exp != null && exp * 1000 > System.currentTimeMillis();
+            if (exp == null || exp * 1000 <= System.currentTimeMillis()) {
+                return null;
+            }
+            return new AuthPrincipal(claims.getSubject(), new Date(exp * 1000));
         } catch (Exception e) {
-            return false;
+            return null;
+        }
+    }
+
+    // The cache is keyed by a hash so raw tokens are not kept around in memory
+    private static String tokenKey(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Each entry lives until its token expires
+    private static final class TokenExpiry implements Expiry<String, AuthPrincipal> {
+
+        @Override
+        public long expireAfterCreate(String key, AuthPrincipal principal, long currentTime) {
+            long millis = principal.getExpiresAt().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, AuthPrincipal principal, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, principal, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, AuthPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,236 @@
+package com.rohit.ecommerce.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.ImageRendition;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.storage.ImageHashes;
+import com.rohit.ecommerce.storage.ImageStore;
+import com.rohit.ecommerce.storage.StoredImage;
+
+/**
+ * Makes the resized renditions (thumbnail, medium) of an uploaded product image.
+ *
+ * Runs on the bounded imageProcessingExecutor after the upload is saved, so the request never waits
+ * for decoding and encoding. The original is decoded with source subsampling, which keeps the decoded
+ * bitmap close to twice the target size however large the upload is. Renditions are re-encoded as JPEG.
+ * Until a rendition exists the original is served in its place; asking for a missing rendition
+ * schedules it again, which also covers images uploaded before this pipeline and rejected tasks.
+ */
+@Service
+public class ImageRenditionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageRenditionService.class);
+
+    private static final String RENDITION_TYPE = "image/jpeg";
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    @Qualifier("imageProcessingExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Value("${app.images.renditions.thumbnail-size:200}")
+    private int thumbnailSize;
+
+    @Value("${app.images.renditions.medium-size:600}")
+    private int mediumSize;
+
+    @Value("${app.images.renditions.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    // Original image ids with a task queued or running, so repeated requests don't pile up duplicates
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Queues the renditions of the product's current image. Never blocks, drops the task if the queue is full.
+     */
+    public void schedule(Product product) {
+        String productId = product.getId();
+        String originalId = product.getImageId();
+        if (productId == null || originalId == null || !inFlight.add(originalId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(productId, originalId);
+                } catch (Exception e) {
+                    log.error("Could not create renditions of image {} of product {}", originalId, productId, e);
+                } finally {
+                    inFlight.remove(originalId);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            inFlight.remove(originalId);
+            log.warn("Image processing queue full, renditions of product {} will be created on a later request", productId);
+        }
+    }
+
+    /**
+     * The rendition to serve for the requested size, falling back to the original while it is not available
+     */
+    public ImageRendition select(Product product, String size) {
+        if (size == null || ImageRendition.ORIGINAL.equals(size)) {
+            return ImageRendition.original(product);
+        }
+        if (!ImageRendition.THUMBNAIL.equals(size) && !ImageRendition.MEDIUM.equals(size)) {
+            throw new IllegalArgumentException("Unknown image size: " + size);
+        }
+        Map<String, ImageRendition> renditions = product.getImageRenditions();
+        ImageRendition rendition = renditions != null ? renditions.get(size) : null;
+        if (rendition == null) {
+            schedule(product);
+            return ImageRendition.original(product);
+        }
+        return rendition;
+    }
+
+    /**
+     * Removes all renditions of a product from the image store, the original is left alone
+     */
+    public void deleteRenditions(Product product) {
+        if (product.getImageRenditions() != null) {
+            product.getImageRenditions().values().forEach(rendition -> imageStore.delete(rendition.getImageId()));
+        }
+    }
+
+    private void generate(String productId, String originalId) throws IOException {
+        StoredImage original = imageStore.load(originalId);
+        if (original == null) {
+            return;
+        }
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        sizes.put(ImageRendition.MEDIUM, mediumSize);
+        sizes.put(ImageRendition.THUMBNAIL, thumbnailSize);
+
+        // Decode once for the largest rendition, the smaller ones are scaled from that bitmap
+        BufferedImage source = decode(original, mediumSize);
+        if (source == null) {
+            log.warn("Image {} of product {} is not in a readable format, no renditions made", originalId, productId);
+            return;
+        }
+        Update update = new Update();
+        List<String> stored = new ArrayList<>();
+        for (Map.Entry<String, Integer> size : sizes.entrySet()) {
+            BufferedImage scaled = scale(source, size.getValue());
+            byte[] jpeg = encodeJpeg(scaled);
+            String imageId = imageStore.store(new ByteArrayInputStream(jpeg), size.getKey() + ".jpg", RENDITION_TYPE);
+            stored.add(imageId);
+            update.set("imageRenditions." + size.getKey(), new ImageRendition(imageId, RENDITION_TYPE,
+                    ImageHashes.of(jpeg), new Date(), scaled.getWidth(), scaled.getHeight()));
+        }
+
+        // Only attach the renditions if the product still has the image they were made from
+        UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(productId).and("imageId").is(originalId)), update, Product.class);
+        if (result.getMatchedCount() == 0) {
+            stored.forEach(imageStore::delete);
+            return;
+        }
+        eventPublisher.publishEvent(ProductChangedEvent.updated(productId));
+    }
+
+    private BufferedImage decode(StoredImage image, int targetSize) throws IOException {
+        try (InputStream in = image.getInputStream(); ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Skip pixels while decoding, e.g. a 6000px photo for a 600px target is read as 1200px
+                int step = Math.max(1, longest / (2 * targetSize));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage source, int maxSize) {
+        double factor = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * factor));
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            // JPEG has no alpha channel, transparent areas become white
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,116 @@
+package com.rohit.ecommerce.service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-memory token buckets limiting login and registration attempts per account and per client address.
+ *
+ * A bucket holds up to capacity attempts and refills at capacity per period, so short bursts pass and
+ * sustained guessing is slowed to the refill rate. Buckets live in Caffeine caches that drop them after a
+ * period without attempts (a bucket idle that long is full again anyway) and cap how many are kept.
+ * The limits are per instance. Rejected attempts are counted in app.auth.rate-limited, tagged with the limit.
+ */
+@Service
+public class LoginRateLimiter {
+
+    private final Limit accounts;
+    private final Limit addresses;
+    private final LongSupplier nanoTime;
+
+    @Autowired
+    public LoginRateLimiter(MeterRegistry meterRegistry,
+                            @Value("${app.auth.rate-limit.account.capacity:10}") int accountCapacity,
+                            @Value("${app.auth.rate-limit.account.period:15m}") Duration accountPeriod,
+                            @Value("${app.auth.rate-limit.ip.capacity:100}") int addressCapacity,
+                            @Value("${app.auth.rate-limit.ip.period:1m}") Duration addressPeriod,
+                            @Value("${app.auth.rate-limit.max-keys:100000}") long maxKeys) {
+        this(meterRegistry, accountCapacity, accountPeriod, addressCapacity, addressPeriod, maxKeys, System::nanoTime);
+    }
+
+    LoginRateLimiter(MeterRegistry meterRegistry, int accountCapacity, Duration accountPeriod,
+                     int addressCapacity, Duration addressPeriod, long maxKeys, LongSupplier nanoTime) {
+        this.accounts = new Limit(meterRegistry, "account", accountCapacity, accountPeriod, maxKeys);
+        this.addresses = new Limit(meterRegistry, "ip", addressCapacity, addressPeriod, maxKeys);
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Takes one attempt from the bucket of the client address and, when given, of the account
+     * @param account Email the attempt is for, null for attempts that aren't about an existing account
+     * @return 0 if the attempt may go ahead, otherwise the number of seconds after which it may be retried
+     */
+    public long tryAcquire(String account, String address) {
+        long now = nanoTime.getAsLong();
+        long wait = addresses.tryTake(address, now);
+        if (wait == 0 && account != null) {
+            wait = accounts.tryTake(account.trim().toLowerCase(Locale.ROOT), now);
+        }
+        return wait == 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    private static final class Limit {
+
+        private final Cache<String, TokenBucket> buckets;
+        private final int capacity;
+        private final long nanosPerToken;
+        private final Counter rejected;
+
+        Limit(MeterRegistry meterRegistry, String name, int capacity, Duration period, long maxKeys) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Rate limit capacity must be at least 1");
+            }
+            this.buckets = Caffeine.newBuilder().maximumSize(maxKeys).expireAfterAccess(period).build();
+            this.capacity = capacity;
+            this.nanosPerToken = Math.max(1, period.toNanos() / capacity);
+            this.rejected = Counter.builder("app.auth.rate-limited").tag("limit", name).register(meterRegistry);
+        }
+
+        long tryTake(String key, long now) {
+            TokenBucket bucket = buckets.get(key == null ? "" : key, k -> new TokenBucket(capacity, now));
+            long wait = bucket.tryTake(now, capacity, nanosPerToken);
+            if (wait > 0) {
+                rejected.increment();
+            }
+            return wait;
+        }
+    }
+
+    static final class TokenBucket {
+
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(int capacity, long now) {
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise the nanoseconds until the next one is available
+         */
+        synchronized long tryTake(long now, int capacity, long nanosPerToken) {
+            if (now > refilledAt) {
+                tokens = Math.min(capacity, tokens + (double) (now - refilledAt) / nanosPerToken);
+                refilledAt = now;
+            }
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) * nanosPerToken);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.rohit.ecommerce.service;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+/**
+ * BCrypt hashing of passwords on the bounded passwordHashingExecutor.
+ *
+ * A hash takes tens of milliseconds of CPU by design. Running it on its own small pool means a login storm
+ * queues up there instead of taking every core from the request threads. The calling request waits for
+ * the result; on a virtual thread that wait doesn't hold a carrier thread.
+ */
+@Service
+public class PasswordHasher {
+
+    private static final Pattern BCRYPT = Pattern.compile("\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}");
+
+    private final BCryptPasswordEncoder encoder;
+    private final AsyncTaskExecutor executor;
+    private final Duration timeout;
+    // Checked instead when there is no stored hash, so a wrong email costs as much as a wrong password
+    private final String unknownUserHash;
+
+    public PasswordHasher(@Qualifier("passwordHashingExecutor") AsyncTaskExecutor executor,
+                          @Value("${app.auth.bcrypt-strength:10}") int strength,
+                          @Value("${app.auth.hashing.timeout:5s}") Duration timeout) {
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.executor = executor;
+        this.timeout = timeout;
+        this.unknownUserHash = encoder.encode("unknown-user");
+    }
+
+    /**
+     * @throws RejectedExecutionException if the hashing pool is saturated or the hash took longer than app.auth.hashing.timeout
+     */
+    public String hash(String password) {
+        return run(() -> encoder.encode(password));
+    }
+
+    /**
+     * @param hash The stored hash, null when there is no such user (false is returned after the same amount of work)
+     * @throws RejectedExecutionException if the hashing pool is saturated or the check took longer than app.auth.hashing.timeout
+     */
+    public boolean matches(String password, String hash) {
+        boolean matches = run(() -> encoder.matches(password, hash != null ? hash : unknownUserHash));
+        return matches && hash != null;
+    }
+
+    /**
+     * @return false for passwords stored before hashing was introduced
+     */
+    public static boolean isHash(String stored) {
+        return stored != null && BCRYPT.matcher(stored).matches();
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> result = executor.submit(task);
+        try {
+            return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new RejectedExecutionException("Password hashing timed out", e);
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.rohit.ecommerce.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.rohit.ecommerce.event.CatalogChangedEvent;
+import com.rohit.ecommerce.model.BulkImportResult;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductBulkRow;
+
+/**
+ * Loads and dumps the catalog in bulk as NDJSON (one product object per line) or CSV with a header row.
+ *
+ * Imports are parsed row by row and written in unordered bulkWrite batches of app.bulk.batch-size,
+ * so memory stays bounded by one batch whatever the input size. Rows with an id are upserted on that id
+ * and only touch the catalog fields, the image of an existing product is kept. Rows without an id are inserted.
+ * Exports stream a MongoDB cursor straight into the response.
+ */
+@Service
+public class ProductBulkService {
+
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private static final CsvSchema CSV_SCHEMA = CSV_MAPPER.schemaFor(ProductBulkRow.class).withHeader();
+
+    private static final String[] CATALOG_FIELDS = { "name", "description", "brand", "price", "category",
+            "releaseDate", "available", "stockQuantity" };
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.bulk.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.bulk.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    public BulkImportResult importNdjson(InputStream in) throws IOException {
+        ImportBatch batch = new ImportBatch();
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(lineNumber, objectMapper.readValue(line, ProductBulkRow.class));
+                } catch (JsonProcessingException e) {
+                    batch.unparseable(lineNumber, e.getOriginalMessage());
+                }
+            }
+        } finally {
+            batch.finish();
+        }
+        return batch.result;
+    }
+
+    /**
+     * Columns are matched by the header names, unknown columns are ignored.
+     * Errors report the record number counting the header as line 1.
+     */
+    public BulkImportResult importCsv(InputStream in) throws IOException {
+        ImportBatch batch = new ImportBatch();
+        try (MappingIterator<ProductBulkRow> rows = CSV_MAPPER.readerFor(ProductBulkRow.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(in)) {
+            long lineNumber = 1;
+            while (true) {
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    lineNumber++;
+                    batch.add(lineNumber, rows.nextValue());
+                } catch (JsonMappingException e) {
+                    // The iterator skips to the next record
+                    batch.unparseable(lineNumber, e.getOriginalMessage());
+                } catch (JsonProcessingException e) {
+                    // Broken CSV syntax, the rest of the input can't be trusted
+                    batch.unparseable(lineNumber, e.getOriginalMessage());
+                    break;
+                }
+            }
+        } finally {
+            batch.finish();
+        }
+        return batch.result;
+    }
+
+    public void exportNdjson(OutputStream out) throws IOException {
+        try (SequenceWriter writer = objectMapper.writerFor(ProductBulkRow.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(out)) {
+            export(writer);
+        }
+        out.write('\n');
+        out.flush();
+    }
+
+    public void exportCsv(OutputStream out) throws IOException {
+        try (SequenceWriter writer = CSV_MAPPER.writerFor(ProductBulkRow.class).with(CSV_SCHEMA).writeValues(out)) {
+            export(writer);
+        }
+        out.flush();
+    }
+
+    private void export(SequenceWriter writer) throws IOException {
+        Query query = new Query().with(Sort.by("id"));
+        query.fields().include(CATALOG_FIELDS);
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            for (Product product : (Iterable<Product>) products::iterator) {
+                writer.write(ProductBulkRow.of(product));
+            }
+        }
+    }
+
+    private static String validate(ProductBulkRow row) {
+        if (row.getName() == null || row.getName().isBlank()) {
+            return "name is required";
+        }
+        if (row.getPrice() != null && row.getPrice().compareTo(BigDecimal.ZERO) < 0) {
+            return "price must not be negative";
+        }
+        if (row.getStockQuantity() < 0) {
+            return "stockQuantity must not be negative";
+        }
+        return null;
+    }
+
+    private static Product toProduct(ProductBulkRow row) {
+        Product product = new Product();
+        product.setId(row.getId());
+        product.setName(row.getName());
+        product.setDescription(row.getDescription());
+        product.setBrand(row.getBrand());
+        product.setPrice(row.getPrice());
+        product.setCategory(row.getCategory());
+        product.setReleaseDate(row.getReleaseDate());
+        product.setAvailable(row.isAvailable());
+        product.setStockQuantity(row.getStockQuantity());
+        product.setVersion(1L);
+        return product;
+    }
+
+    private static Update catalogUpdate(ProductBulkRow row) {
+        return new Update()
+                .set("name", row.getName())
+                .set("description", row.getDescription())
+                .set("brand", row.getBrand())
+                .set("price", row.getPrice())
+                .set("category", row.getCategory())
+                .set("releaseDate", row.getReleaseDate())
+                .set("available", row.isAvailable())
+                .set("stockQuantity", row.getStockQuantity())
+                .inc("version", 1L);
+    }
+
+    private record PendingRow(long line, String id) {
+    }
+
+    /**
+     * Collects parsed rows and writes them once a batch is full.
+     */
+    private class ImportBatch {
+
+        private final BulkImportResult result = new BulkImportResult();
+        private final List<PendingRow> pending = new ArrayList<>();
+        private BulkOperations operations;
+
+        void add(long line, ProductBulkRow row) {
+            result.setReceived(result.getReceived() + 1);
+            String error = validate(row);
+            if (error != null) {
+                reject(line, row.getId(), error);
+                return;
+            }
+            if (operations == null) {
+                operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+            }
+            if (row.getId() == null) {
+                Product product = toProduct(row);
+                product.setId(new ObjectId().toHexString());
+                operations.insert(product);
+                pending.add(new PendingRow(line, product.getId()));
+            } else {
+                operations.upsert(Query.query(Criteria.where("id").is(row.getId())), catalogUpdate(row));
+                pending.add(new PendingRow(line, row.getId()));
+            }
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void unparseable(long line, String message) {
+            result.setReceived(result.getReceived() + 1);
+            reject(line, null, message);
+        }
+
+        void reject(long line, String id, String message) {
+            result.setFailed(result.getFailed() + 1);
+            if (result.getErrors().size() < maxReportedErrors) {
+                result.getErrors().add(new BulkImportResult.RowError(line, id, message));
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                count(operations.execute());
+            } catch (BulkOperationException e) {
+                // Unordered, so every row without an error was still written
+                count(e.getResult());
+                for (BulkWriteError error : e.getErrors()) {
+                    PendingRow row = pending.get(error.getIndex());
+                    reject(row.line(), row.id(), error.getMessage());
+                }
+            } finally {
+                pending.clear();
+                operations = null;
+            }
+        }
+
+        void finish() {
+            flush();
+            if (result.getInserted() + result.getUpdated() > 0) {
+                eventPublisher.publishEvent(new CatalogChangedEvent("bulk import"));
+            }
+        }
+
+        private void count(BulkWriteResult written) {
+            result.setInserted(result.getInserted() + written.getInsertedCount() + written.getUpserts().size());
+            result.setUpdated(result.getUpdated() + written.getMatchedCount());
+        }
+    }
+}
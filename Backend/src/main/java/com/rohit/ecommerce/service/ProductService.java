@@ -1,62 +1,589 @@
 package com.rohit.ecommerce.service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rohit.ecommerce.cache.CatalogSnapshot;
+import com.rohit.ecommerce.cache.ProductCache;
+import com.rohit.ecommerce.cache.ProductFacetCache;
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.ImageRendition;
 import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductBatch;
+import com.rohit.ecommerce.model.ProductBrowsePage;
+import com.rohit.ecommerce.model.ProductFacets;
+import com.rohit.ecommerce.model.ProductFilter;
+import com.rohit.ecommerce.model.ProductPage;
+import com.rohit.ecommerce.model.ProductSort;
+import com.rohit.ecommerce.model.ProductSummary;
+import com.rohit.ecommerce.model.ProductWriteOperation;
 import com.rohit.ecommerce.repo.ProductRepo;
+import com.rohit.ecommerce.search.ProductSearchIndex;
+import com.rohit.ecommerce.search.ProductSuggester;
+import com.rohit.ecommerce.search.SearchHit;
+import com.rohit.ecommerce.search.Suggestion;
+import com.rohit.ecommerce.storage.ImageHashes;
+import com.rohit.ecommerce.storage.ImageStore;
+import com.rohit.ecommerce.storage.StoredImage;
+import com.rohit.ecommerce.util.ProductCursor;
 
 @Service
 @RequestMapping("/api")
 public class ProductService {
 
+    private static final Set<String> PATCHABLE_FIELDS = Set.of("name", "description", "brand", "price", "category",
+            "releaseDate", "available", "stockQuantity");
+
+    // Written by a product update that comes with a new image
+    private static final Set<String> REPLACED_WITH_IMAGE_FIELDS = Set.of("name", "description", "brand", "price",
+            "category", "releaseDate", "available", "stockQuantity", "imageId", "imageName", "imageType", "imageHash",
+            "imageUploadedAt", "imageRenditions");
+
+    // Fields that can't be cleared, the primitives would silently turn null into false or 0
+    private static final Set<String> REQUIRED_FIELDS = Set.of("name", "available", "stockQuantity");
+
     @Autowired
     private ProductRepo repo;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Autowired
+    private ImageRenditionService renditionService;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductSuggester suggester;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductFacetCache facetCache;
+
+    @Autowired
+    private CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    private ProductWriteQueue writeQueue;
+
+    private List<BigDecimal> priceBoundaries;
+
+    @Value("${app.browse.facet-size:50}")
+    private int facetSize;
+
+    @Value("${app.products.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.products.page.max-size:100}")
+    private int maxPageSize;
+
+    @Value("${app.products.batch.max-size:100}")
+    private int maxBatchSize;
+
+    /**
+     * Checked when the service is created, so a bad app.browse.price-boundaries stops the startup instead of
+     * failing every browse request.
+     * @throws IllegalStateException unless there are at least two boundaries in strictly ascending order
+     */
+    @Value("${app.browse.price-boundaries:0,25,50,100,250,500,1000}")
+    void setPriceBoundaries(List<BigDecimal> priceBoundaries) {
+        if (priceBoundaries.size() < 2) {
+            throw new IllegalStateException("app.browse.price-boundaries needs at least two values");
+        }
+        for (int i = 1; i < priceBoundaries.size(); i++) {
+            if (priceBoundaries.get(i).compareTo(priceBoundaries.get(i - 1)) <= 0) {
+                throw new IllegalStateException("app.browse.price-boundaries must be strictly ascending: " + priceBoundaries);
+            }
+        }
+        this.priceBoundaries = List.copyOf(priceBoundaries);
+    }
+
     public List<Product> getAllProducts() {
 
         return repo.findAll();
 
     }
     public Product getProductById(String id) {
-        return repo.findById(id).orElse(null);
+        return productCache.get(id, key -> repo.findById(key).orElse(null));
+    }
+
+    /**
+     * Several products by id at once, e.g. the items of a cart. Products in the ProductCache are taken from there,
+     * the others are read with one $in query and cached. An id asked for twice is looked up and returned once.
+     * @throws IllegalArgumentException if ids is empty, contains a blank id or more than app.products.batch.max-size distinct ids
+     */
+    public ProductBatch<Product> getProducts(List<String> ids) {
+        List<String> distinct = batchIds(ids);
+        Map<String, Product> found = productCache.getAll(distinct, missing -> {
+            Map<String, Product> loaded = new HashMap<>();
+            repo.findAllById(missing).forEach(product -> loaded.put(product.getId(), product));
+            return loaded;
+        });
+        return batch(distinct, found);
+    }
+
+    /**
+     * Like getProducts, but the products that aren't cached are read with the ProductSummary fields only
+     * (and not cached, the cache holds full products)
+     */
+    public ProductBatch<ProductSummary> getProductSummaries(List<String> ids) {
+        List<String> distinct = batchIds(ids);
+        Map<String, ProductSummary> found = new HashMap<>();
+        productCache.getAllPresent(distinct).forEach((id, product) -> found.put(id, ProductSummary.of(product)));
+        List<String> missing = distinct.stream().filter(id -> !found.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            repo.findSummariesByIdIn(missing).forEach(summary -> found.put(summary.getId(), summary));
+        }
+        return batch(distinct, found);
+    }
+
+    private List<String> batchIds(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("No product ids given");
+        }
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id == null || id.isBlank()) {
+                throw new IllegalArgumentException("Product ids must not be blank");
+            }
+            distinct.add(id);
+        }
+        if (distinct.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " products can be fetched at once");
+        }
+        return List.copyOf(distinct);
+    }
+
+    private static <T> ProductBatch<T> batch(List<String> ids, Map<String, T> found) {
+        List<T> items = new ArrayList<>(found.size());
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            T item = found.get(id);
+            if (item != null) {
+                items.add(item);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new ProductBatch<>(items, missing);
     }
     public Product addProduct(Product product, MultipartFile imageFile) throws IOException {
-        searchProducts("jsdfksdlfsijdfok");
-        product.setImageName(imageFile.getOriginalFilename());
-        product.setImageType(imageFile.getContentType());
-        product.setImageData(imageFile.getBytes());
+        storeImage(product, imageFile);
+        product.setVersion(1L);
 
-        return repo.save(product);
+        Product saved = repo.save(product);
+        renditionService.schedule(saved);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(saved));
+        return saved;
     }
 
+    /**
+     * Replaces the editable fields (see patchProduct) and, with a new image, the image fields with one $set.
+     * Without a new image the image references and renditions are left as they are in the database, so a
+     * rendition finished meanwhile is kept. A product that does not exist yet is created from the body.
+     */
     public Product updateProduct(String id, Product product, MultipartFile imageFile) throws IOException {
         // Ensure the product ID is set correctly
         product.setId(id);
         // Only update image if a new one is provided
-        if (imageFile != null && !imageFile.isEmpty()) {
-            product.setImageName(imageFile.getOriginalFilename());
-            product.setImageType(imageFile.getContentType());
-            product.setImageData(imageFile.getBytes());
+        boolean newImage = imageFile != null && !imageFile.isEmpty();
+        if (newImage) {
+            storeImage(product, imageFile);
+        }
+        BeanWrapper fields = new BeanWrapperImpl(product);
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : newImage ? REPLACED_WITH_IMAGE_FIELDS : PATCHABLE_FIELDS) {
+            values.put(field, fields.getPropertyValue(field));
+        }
+        // The document before the update, whose image fields are the ones still stored, or the ones replaced
+        Product previous = mongoTemplate.findAndModify(Query.query(Criteria.where("id").is(id)), patchUpdate(values),
+                FindAndModifyOptions.options().returnNew(false), Product.class);
+        Product saved;
+        if (previous == null) {
+            product.setVersion(1L);
+            saved = repo.save(product);
         } else {
-            // If no new image, keep the existing one
-            Product existingProduct = getProductById(id);
-            if (existingProduct != null) {
-                product.setImageData(existingProduct.getImageData());
-                product.setImageName(existingProduct.getImageName());
-                product.setImageType(existingProduct.getImageType());
+            if (!newImage) {
+                // If no new image, keep the reference to the existing one
+                product.setImageId(previous.getImageId());
+                product.setImageName(previous.getImageName());
+                product.setImageType(previous.getImageType());
+                product.setImageHash(previous.getImageHash());
+                product.setImageUploadedAt(previous.getImageUploadedAt());
+                product.setImageRenditions(previous.getImageRenditions());
             }
+            product.setVersion(nextVersion(previous));
+            saved = product;
         }
-        return repo.save(product);
+        // The old image is only removed once nothing points at it anymore
+        if (newImage && previous != null) {
+            if (previous.getImageId() != null) {
+                imageStore.delete(previous.getImageId());
+            }
+            renditionService.deleteRenditions(previous);
+        }
+        if (newImage) {
+            renditionService.schedule(saved);
+        }
+        eventPublisher.publishEvent(ProductChangedEvent.saved(saved));
+        return saved;
+    }
+
+    /**
+     * Writes only the given fields with one $set, the rest of the document (image references included) is
+     * neither read nor rewritten. Accepted fields: name, description, brand, price, category, releaseDate,
+     * available and stockQuantity.
+     * @param expectedVersion Only apply the change if the product still has this version, null to apply it anyway
+     * @return The product after the update, or null if there is no product with this id
+     * @throws IllegalArgumentException for unknown, read-only or invalid fields
+     * @throws OptimisticLockingFailureException if the product no longer has expectedVersion
+     */
+    public Product patchProduct(String id, Map<String, Object> changes, Long expectedVersion) {
+        Update update = patchUpdate(validatePatch(changes));
+
+        Criteria criteria = Criteria.where("id").is(id);
+        if (expectedVersion != null) {
+            // Products written before versioning have no version field, they count as version 0
+            criteria = expectedVersion == 0 ? criteria.and("version").in(0L, null) : criteria.and("version").is(expectedVersion);
+        }
+        Product updated = mongoTemplate.findAndModify(Query.query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+        if (updated == null) {
+            if (expectedVersion != null && repo.existsById(id)) {
+                throw new OptimisticLockingFailureException("Product " + id + " was changed since version " + expectedVersion);
+            }
+            return null;
+        }
+        eventPublisher.publishEvent(ProductChangedEvent.saved(updated));
+        return updated;
+    }
+
+    /**
+     * Checks a PATCH body and converts its values the way a full product body would be read
+     * (decimal price, yyyy-MM-dd dates)
+     * @return The new value by field name, in the order of changes
+     * @throws IllegalArgumentException for unknown, read-only or invalid fields
+     */
+    public Map<String, Object> validatePatch(Map<String, Object> changes) {
+        if (changes == null || changes.isEmpty()) {
+            throw new IllegalArgumentException("No fields to update");
+        }
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            if (!PATCHABLE_FIELDS.contains(change.getKey())) {
+                throw new IllegalArgumentException("Field can't be updated: " + change.getKey());
+            }
+            if (change.getValue() == null && REQUIRED_FIELDS.contains(change.getKey())) {
+                throw new IllegalArgumentException(change.getKey() + " must not be null");
+            }
+        }
+        Product values = objectMapper.convertValue(changes, Product.class);
+        if (values.getName() != null && values.getName().isBlank()) {
+            throw new IllegalArgumentException("name must not be blank");
+        }
+        if (values.getPrice() != null && values.getPrice().signum() < 0) {
+            throw new IllegalArgumentException("price must not be negative");
+        }
+        if (values.getStockQuantity() < 0) {
+            throw new IllegalArgumentException("stockQuantity must not be negative");
+        }
+
+        BeanWrapper fields = new BeanWrapperImpl(values);
+        Map<String, Object> converted = new LinkedHashMap<>();
+        changes.keySet().forEach(field -> converted.put(field, fields.getPropertyValue(field)));
+        return converted;
     }
-    public void deleteProduct(String id) {
+
+    /**
+     * $set of the validated fields and the version increment every product write makes
+     */
+    static Update patchUpdate(Map<String, Object> values) {
+        Update update = new Update();
+        values.forEach(update::set);
+        update.inc("version", 1L);
+        return update;
+    }
+
+    /**
+     * Like patchProduct without a version check, but only validates the changes and leaves writing them to
+     * the ProductWriteQueue. Changes to the same product that are queued together are written as one.
+     * @return The queued operation, to be polled with getWriteOperation
+     * @throws IllegalArgumentException for unknown, read-only or invalid fields
+     * @throws java.util.concurrent.RejectedExecutionException if the queue is full
+     */
+    public ProductWriteOperation queuePatch(String id, Map<String, Object> changes) {
+        return writeQueue.submit(id, validatePatch(changes));
+    }
+
+    public ProductWriteOperation getWriteOperation(String operationId) {
+        return writeQueue.getOperation(operationId);
+    }
+
+    public boolean isWriteBehindEnabled() {
+        return writeQueue.isEnabled();
+    }
+
+    private static long nextVersion(Product product) {
+        return product.getVersion() != null ? product.getVersion() + 1 : 1L;
+    }
+
+    /**
+     * @return false if there was no product with this id
+     */
+    public boolean deleteProduct(String id) {
+        Product product = getProductById(id);
+        if (product == null) {
+            return false;
+        }
         repo.deleteById(id);
+        if (product.getImageId() != null) {
+            imageStore.delete(product.getImageId());
+        }
+        renditionService.deleteRenditions(product);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
+        return true;
     }
-    public List<Product> searchProducts(String keyword) {
-        return repo.searchProducts(keyword);
+
+    /**
+     * Picks the stored image to serve for a size (original, medium, thumbnail)
+     * @return null if the product has no image
+     * @throws IllegalArgumentException for an unknown size
+     */
+    public ImageRendition selectImage(Product product, String size) {
+        if (product == null || product.getImageId() == null) {
+            return null;
+        }
+        return renditionService.select(product, size);
+    }
+
+    /**
+     * Looks up a stored image without reading its bytes
+     * @return The image handle, or null if it does not exist in the store
+     */
+    public StoredImage loadImage(ImageRendition rendition) throws IOException {
+        return imageStore.load(rendition.getImageId());
+    }
+
+    /**
+     * Streams the upload into the image store and points the product at it.
+     * The content hash is computed on the way through, so the bytes are read exactly once.
+     */
+    private void storeImage(Product product, MultipartFile imageFile) throws IOException {
+        MessageDigest digest = ImageHashes.newDigest();
+        // Multipart uploads above the in-memory threshold are read back from the temp file as a stream
+        try (InputStream in = new DigestInputStream(imageFile.getInputStream(), digest)) {
+            product.setImageId(imageStore.store(in, imageFile.getOriginalFilename(), imageFile.getContentType()));
+        }
+        product.setImageName(imageFile.getOriginalFilename());
+        product.setImageType(imageFile.getContentType());
+        product.setImageHash(ImageHashes.toHex(digest));
+        product.setImageUploadedAt(new Date());
+        // Renditions of the new image are made in the background
+        product.setImageRenditions(null);
+    }
+
+    /**
+     * Keyword search over name, description, brand and category, best match first.
+     * Served by the in-memory search index, the keyword is tokenized and never used as a pattern.
+     */
+    public List<ProductSummary> searchProducts(String keyword) {
+        return searchIndex.search(keyword).stream().map(SearchHit::getProduct).toList();
+    }
+
+    /**
+     * Typeahead: product names, brands and categories with a word starting with prefix, most popular first.
+     * Served from memory, see ProductSuggester.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return suggester.suggest(prefix, limit);
+    }
+
+    /**
+     * Counts a view of the product's details, which ranks it higher in suggest
+     */
+    public void recordProductView(String id) {
+        suggester.recordView(id);
+    }
+
+    public List<ProductSummary> getProductSummaries() {
+        return repo.findAllSummaries();
+    }
+
+    /**
+     * All product summaries as ready-made JSON, kept current from product changes without querying MongoDB
+     */
+    public CatalogSnapshot.Listing getCatalogListing() {
+        return catalogSnapshot.listing();
+    }
+
+    public ProductPage getProductPage(ProductSort sort, Sort.Direction direction, Integer limit, String cursor) {
+        if (sort == ProductSort.RELEVANCE) {
+            throw new IllegalArgumentException("Sorting by relevance is only available for search");
+        }
+        return summaryPage(null, sort, direction, limit, cursor);
+    }
+
+    /**
+     * Keyset page of the products matching the filter. The first page (no cursor) also carries the
+     * facet counts of the whole match, served from ProductFacetCache; following pages leave them out.
+     */
+    public ProductBrowsePage browseProducts(ProductFilter filter, ProductSort sort, Sort.Direction direction, Integer limit, String cursor) {
+        if (sort == ProductSort.RELEVANCE) {
+            throw new IllegalArgumentException("Sorting by relevance is only available for search");
+        }
+        ProductFilter key = normalize(filter);
+        if (key.getMinPrice() != null && key.getMaxPrice() != null && key.getMinPrice().compareTo(key.getMaxPrice()) > 0) {
+            throw new IllegalArgumentException("minPrice must not be above maxPrice");
+        }
+        ProductPage page = summaryPage(filterCriteria(key), sort, direction, limit, cursor);
+        ProductFacets facets = null;
+        if (cursor == null || cursor.isEmpty()) {
+            facets = facetCache.get(key, f -> repo.findFacets(filterCriteria(f), priceBoundaries, facetSize));
+        }
+        return new ProductBrowsePage(page.getItems(), page.getNextCursor(), facets);
+    }
+
+    private ProductPage summaryPage(Criteria filter, ProductSort sort, Sort.Direction direction, Integer limit, String cursor) {
+        int pageSize = pageSize(limit);
+        ProductCursor after = decodeCursor(cursor, sort, direction);
+
+        // One extra row tells us whether there is a next page without a count query
+        List<ProductSummary> items = repo.findSummaryPage(filter, sort, direction, after, pageSize + 1);
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            nextCursor = ProductCursor.after(items.get(pageSize - 1), sort, direction).encode();
+        }
+        return new ProductPage(items, nextCursor);
+    }
+
+    private static ProductFilter normalize(ProductFilter filter) {
+        return new ProductFilter(blankToNull(filter.getCategory()), blankToNull(filter.getBrand()),
+                filter.getMinPrice() != null ? filter.getMinPrice().stripTrailingZeros() : null,
+                filter.getMaxPrice() != null ? filter.getMaxPrice().stripTrailingZeros() : null,
+                filter.getAvailable());
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static Criteria filterCriteria(ProductFilter filter) {
+        Criteria criteria = new Criteria();
+        if (filter.getCategory() != null) {
+            criteria.and("category").is(filter.getCategory());
+        }
+        if (filter.getBrand() != null) {
+            criteria.and("brand").is(filter.getBrand());
+        }
+        if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+            Criteria price = criteria.and("price");
+            if (filter.getMinPrice() != null) {
+                price.gte(filter.getMinPrice());
+            }
+            if (filter.getMaxPrice() != null) {
+                price.lte(filter.getMaxPrice());
+            }
+        }
+        if (filter.getAvailable() != null) {
+            criteria.and("available").is(filter.getAvailable());
+        }
+        return criteria;
+    }
+
+    /**
+     * Same keyset contract as getProductPage, applied to the in-memory search results
+     */
+    public ProductPage searchProductPage(String keyword, ProductSort sort, Sort.Direction direction, Integer limit, String cursor) {
+        int pageSize = pageSize(limit);
+        ProductCursor after = decodeCursor(cursor, sort, direction);
+
+        List<SearchHit> hits = new ArrayList<>(searchIndex.search(keyword));
+        hits.sort((a, b) -> compareKeys(sortValue(a, sort), a.getProduct().getId(), sortValue(b, sort), b.getProduct().getId(), direction));
+
+        // Binary search for the first hit after the cursor
+        int from = 0;
+        if (after != null) {
+            int to = hits.size();
+            while (from < to) {
+                int mid = (from + to) >>> 1;
+                SearchHit hit = hits.get(mid);
+                if (compareKeys(sortValue(hit, sort), hit.getProduct().getId(), after.getValue(), after.getId(), direction) <= 0) {
+                    from = mid + 1;
+                } else {
+                    to = mid;
+                }
+            }
+        }
+        int end = Math.min(hits.size(), from + pageSize);
+        List<ProductSummary> items = hits.subList(from, end).stream().map(SearchHit::getProduct).toList();
+        String nextCursor = end < hits.size() ? ProductCursor.after(hits.get(end - 1), sort, direction).encode() : null;
+        return new ProductPage(items, nextCursor);
+    }
+
+    private int pageSize(Integer limit) {
+        return limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    private ProductCursor decodeCursor(String cursor, ProductSort sort, Sort.Direction direction) {
+        return cursor == null || cursor.isEmpty() ? null : ProductCursor.decode(cursor, sort, direction);
+    }
+
+    private static Object sortValue(SearchHit hit, ProductSort sort) {
+        return sort == ProductSort.RELEVANCE ? hit.getScore() : ProductCursor.sortValue(hit.getProduct(), sort);
+    }
+
+    // Orders like MongoDB does for (field, _id): missing values first when ascending
+    @SuppressWarnings("unchecked")
+    private static int compareKeys(Object value1, String id1, Object value2, String id2, Sort.Direction direction) {
+        int result;
+        if (value1 == null || value2 == null) {
+            result = value1 == null ? (value2 == null ? 0 : -1) : 1;
+        } else {
+            result = ((Comparable<Object>) value1).compareTo(value2);
+        }
+        if (result == 0) {
+            result = id1.compareTo(id2);
+        }
+        return direction.isAscending() ? result : -result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,418 @@
+package com.rohit.ecommerce.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductWriteOperation;
+import com.rohit.ecommerce.repo.ProductRepo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind queue for product field changes sent with Prefer: respond-async, meant for back-office bulk edits.
+ *
+ * A change is validated when it is accepted and then waits in a bounded queue. Changes to a product that
+ * is still queued are merged into one write (later values win per field). A single writer thread takes up to
+ * app.products.write-behind.batch-size products at a time and writes them with one unordered bulk update,
+ * so however many edits arrive, they hold one MongoDB connection instead of one per request thread.
+ * It waits up to flush-interval for a batch to fill, which also gives repeated edits time to merge.
+ *
+ * With capacity products queued, changes to other products are rejected (RejectedExecutionException,
+ * answered with 503) until the writer catches up. A failed bulk write is retried max-attempts times.
+ * Operation states are stored in MongoDB when a change is accepted, so a poll can reach any instance. The outcomes
+ * of a batch are written with one bulk update; MongoDB deletes them status-ttl later. An operation whose outcome
+ * was never written (the instance stopped with changes queued) stays QUEUED until pending-ttl has passed.
+ *
+ * Published as app.products.write-behind.pending, .operations (by outcome) and .batch.size.
+ */
+@Service
+public class ProductWriteQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductWriteQueue.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductRepo repo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration statusTtl;
+    private final Duration pendingTtl;
+    private final DistributionSummary batchSizes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    // Product id -> merged changes, in the order the products were first queued
+    private final LinkedHashMap<String, PendingWrite> pending = new LinkedHashMap<>();
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    public ProductWriteQueue(MongoTemplate mongoTemplate, ProductRepo repo, ApplicationEventPublisher eventPublisher,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.products.write-behind.enabled:true}") boolean enabled,
+                             @Value("${app.products.write-behind.capacity:10000}") int capacity,
+                             @Value("${app.products.write-behind.batch-size:500}") int batchSize,
+                             @Value("${app.products.write-behind.flush-interval:200ms}") Duration flushInterval,
+                             @Value("${app.products.write-behind.max-attempts:3}") int maxAttempts,
+                             @Value("${app.products.write-behind.retry-delay:1s}") Duration retryDelay,
+                             @Value("${app.products.write-behind.status-ttl:15m}") Duration statusTtl,
+                             @Value("${app.products.write-behind.pending-ttl:1d}") Duration pendingTtl) {
+        this.mongoTemplate = mongoTemplate;
+        this.repo = repo;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.statusTtl = statusTtl;
+        this.pendingTtl = pendingTtl;
+        this.batchSizes = DistributionSummary.builder("app.products.write-behind.batch.size").register(meterRegistry);
+        Gauge.builder("app.products.write-behind.pending", this, queue -> queue.pendingCount()).register(meterRegistry);
+    }
+
+    /**
+     * @return false when app.products.write-behind.enabled=false, changes are then written while the request waits
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues validated field changes of one product
+     * @param values Field values as returned by ProductService.validatePatch
+     * @throws RejectedExecutionException if the queue holds capacity other products, or is shutting down
+     */
+    public ProductWriteOperation submit(String productId, Map<String, Object> values) {
+        lock.lock();
+        try {
+            // Checked before the operation is stored, so a full queue turns requests away without writing anything
+            checkAccepting(productId);
+        } finally {
+            lock.unlock();
+        }
+        ProductWriteOperation operation = ProductWriteOperation.queued(UUID.randomUUID().toString(), productId,
+                new Date(System.currentTimeMillis() + pendingTtl.toMillis()));
+        mongoTemplate.insert(operation);
+        lock.lock();
+        try {
+            checkAccepting(productId);
+            pending.computeIfAbsent(productId, PendingWrite::new).merge(values, operation.getOperationId());
+            changed.signalAll();
+        } catch (RejectedExecutionException e) {
+            // Filled up while the operation was stored
+            mongoTemplate.remove(operation);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+        count("queued");
+        return operation;
+    }
+
+    private void checkAccepting(String productId) {
+        if (!running && writer != null) {
+            throw rejected("Product writes are shutting down");
+        }
+        if (!pending.containsKey(productId) && pending.size() >= capacity) {
+            throw rejected("Too many product writes queued");
+        }
+    }
+
+    /**
+     * @return The operation's state, null if there is no such operation (or it was completed longer than status-ttl ago)
+     */
+    public ProductWriteOperation getOperation(String operationId) {
+        return mongoTemplate.findById(operationId, ProductWriteOperation.class);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        lock.lock();
+        try {
+            if (enabled && writer == null) {
+                running = true;
+                writer = Thread.ofPlatform().name("product-writer").daemon().start(this::run);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting changes and gives the writer a few seconds to write what is queued
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread current;
+        lock.lock();
+        try {
+            running = false;
+            current = writer;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (current != null) {
+            current.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private void run() {
+        while (true) {
+            List<PendingWrite> batch;
+            try {
+                batch = takeBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (batch.isEmpty()) {
+                if (!running) {
+                    return;
+                }
+                continue;
+            }
+            if (!write(batch)) {
+                if (!running) {
+                    return;
+                }
+                pause();
+            }
+        }
+    }
+
+    /**
+     * @return false if the batch could not be written and was queued again (or failed for good)
+     */
+    boolean write(List<PendingWrite> batch) {
+        List<Outcome> outcomes;
+        try {
+            outcomes = flush(batch);
+        } catch (RuntimeException e) {
+            // Some updates may have gone through, setting the same values again does no harm
+            log.warn("Could not write {} queued product changes: {}", batch.size(), e.getMessage());
+            record(requeue(batch, e));
+            return false;
+        }
+        record(outcomes);
+        return true;
+    }
+
+    /**
+     * Waits for queued changes, then up to flush-interval for a full batch
+     */
+    List<PendingWrite> takeBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            while (pending.isEmpty() && running) {
+                changed.await(1, TimeUnit.SECONDS);
+            }
+            long deadline = System.nanoTime() + flushInterval.toNanos();
+            long remaining;
+            while (running && pending.size() < batchSize && (remaining = deadline - System.nanoTime()) > 0) {
+                changed.awaitNanos(remaining);
+            }
+            List<PendingWrite> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            Iterator<PendingWrite> queued = pending.values().iterator();
+            while (queued.hasNext() && batch.size() < batchSize) {
+                batch.add(queued.next());
+                queued.remove();
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Outcome> flush(List<PendingWrite> batch) {
+        batchSizes.record(batch.size());
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        for (PendingWrite write : batch) {
+            bulk.updateOne(Query.query(Criteria.where("id").is(write.productId)), ProductService.patchUpdate(write.values));
+        }
+        Map<String, String> errors = new HashMap<>();
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // Unordered, so every update without an error was still written
+            for (BulkWriteError error : e.getErrors()) {
+                errors.put(batch.get(error.getIndex()).productId, error.getMessage());
+            }
+        }
+
+        // Reading the written products back lets every listener update from the event instead of loading them one by one
+        Map<String, Product> written = new HashMap<>();
+        List<String> ids = batch.stream().map(write -> write.productId).filter(id -> !errors.containsKey(id)).toList();
+        if (!ids.isEmpty()) {
+            repo.findAllById(ids).forEach(product -> written.put(product.getId(), product));
+        }
+        List<Outcome> outcomes = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            Product product = written.get(write.productId);
+            if (errors.containsKey(write.productId)) {
+                outcomes.add(new Outcome(write, ProductWriteOperation.Status.FAILED, errors.get(write.productId)));
+            } else if (product == null) {
+                outcomes.add(new Outcome(write, ProductWriteOperation.Status.NOT_FOUND, null));
+            } else {
+                outcomes.add(new Outcome(write, ProductWriteOperation.Status.APPLIED, null));
+                publishSaved(product);
+            }
+        }
+        return outcomes;
+    }
+
+    // The write is done, a failing listener must not make the batch look unwritten
+    private void publishSaved(Product product) {
+        try {
+            eventPublisher.publishEvent(ProductChangedEvent.saved(product));
+        } catch (RuntimeException e) {
+            log.error("Could not publish the change of product {}", product.getId(), e);
+        }
+    }
+
+    /**
+     * Puts a failed batch back in front of what was queued meanwhile, newer changes to the same product win
+     * @return The writes given up on after max-attempts
+     */
+    private List<Outcome> requeue(List<PendingWrite> batch, RuntimeException cause) {
+        List<Outcome> failed = new ArrayList<>();
+        lock.lock();
+        try {
+            LinkedHashMap<String, PendingWrite> retried = new LinkedHashMap<>();
+            for (PendingWrite write : batch) {
+                if (++write.attempts >= maxAttempts) {
+                    failed.add(new Outcome(write, ProductWriteOperation.Status.FAILED, cause.getMessage()));
+                    continue;
+                }
+                PendingWrite newer = pending.remove(write.productId);
+                if (newer != null) {
+                    write.merge(newer);
+                }
+                retried.put(write.productId, write);
+            }
+            retried.putAll(pending);
+            pending.clear();
+            pending.putAll(retried);
+        } finally {
+            lock.unlock();
+        }
+        return failed;
+    }
+
+    // Stores the final states of the operations with one bulk update
+    private void record(List<Outcome> outcomes) {
+        if (outcomes.isEmpty()) {
+            return;
+        }
+        Date completedAt = new Date();
+        Date expiresAt = new Date(completedAt.getTime() + statusTtl.toMillis());
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductWriteOperation.class);
+        for (Outcome outcome : outcomes) {
+            bulk.updateMulti(Query.query(Criteria.where("operationId").in(outcome.write().operationIds)),
+                    new Update().set("status", outcome.status()).set("error", outcome.error())
+                            .set("completedAt", completedAt).set("expiresAt", expiresAt));
+            count(outcome.status().name().toLowerCase());
+            if (outcome.status() == ProductWriteOperation.Status.FAILED) {
+                log.error("Could not write queued changes of product {}: {}", outcome.write().productId, outcome.error());
+            }
+        }
+        try {
+            bulk.execute();
+        } catch (RuntimeException e) {
+            // The product writes are done either way, the operations stay QUEUED until pending-ttl
+            log.error("Could not store the outcome of {} product writes", outcomes.size(), e);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(retryDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private RejectedExecutionException rejected(String message) {
+        count("rejected");
+        return new RejectedExecutionException(message);
+    }
+
+    private void count(String outcome) {
+        Counter.builder("app.products.write-behind.operations").tag("outcome", outcome).register(meterRegistry).increment();
+    }
+
+    private record Outcome(PendingWrite write, ProductWriteOperation.Status status, String error) {
+    }
+
+    static final class PendingWrite {
+
+        private final String productId;
+        private final Map<String, Object> values = new LinkedHashMap<>();
+        private final List<String> operationIds = new ArrayList<>();
+        private int attempts;
+
+        PendingWrite(String productId) {
+            this.productId = productId;
+        }
+
+        void merge(Map<String, Object> newValues, String operationId) {
+            values.putAll(newValues);
+            operationIds.add(operationId);
+        }
+
+        void merge(PendingWrite newer) {
+            values.putAll(newer.values);
+            operationIds.addAll(newer.operationIds);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.rohit.ecommerce.service;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.SetOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.StockReservation;
+
+/**
+ * Reserves product stock for checkouts without read-modify-write.
+ *
+ * Every stock change is one conditional update on the product document: decrement only if
+ * stockQuantity >= n, with available recomputed in the same pipeline update. MongoDB applies it
+ * atomically under the document lock, so concurrent buyers of a hot product queue up on the
+ * server instead of retrying, and stock can't go below zero.
+ *
+ * Reservation state changes are conditional too (HELD to COMMITTED, RELEASED or EXPIRED), which
+ * makes sure a reservation gives its stock back at most once, whoever gets there first.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.stock.reservations.ttl:15m}")
+    private Duration ttl;
+
+    @Value("${app.stock.reservations.max-quantity:1000}")
+    private int maxQuantity;
+
+    /**
+     * @return null if there is no such product
+     * @throws IllegalArgumentException for a quantity outside 1..app.stock.reservations.max-quantity
+     * @throws IllegalStateException if not enough stock is left
+     */
+    public StockReservation reserve(String productId, int quantity, String owner) {
+        if (quantity < 1 || quantity > maxQuantity) {
+            throw new IllegalArgumentException("quantity must be between 1 and " + maxQuantity);
+        }
+        Product product = adjustStock(productId, -quantity);
+        if (product == null) {
+            Product current = mongoTemplate.findById(productId, Product.class);
+            if (current == null) {
+                return null;
+            }
+            throw new IllegalStateException("Only " + current.getStockQuantity() + " left in stock");
+        }
+
+        Date now = new Date();
+        StockReservation reservation = new StockReservation(null, productId, quantity, owner,
+                StockReservation.Status.HELD, now, new Date(now.getTime() + ttl.toMillis()), null);
+        try {
+            reservation = mongoTemplate.insert(reservation);
+        } catch (RuntimeException e) {
+            // Put the stock back, nothing refers to it
+            adjustStock(productId, quantity);
+            throw e;
+        }
+        return reservation;
+    }
+
+    /**
+     * Makes the reservation final, its stock stays taken.
+     * @return null if the owner has no reservation with this id on this product
+     * @throws IllegalStateException if it was already released, expired or committed
+     */
+    public StockReservation commit(String productId, String reservationId, String owner) {
+        return close(productId, reservationId, owner, StockReservation.Status.COMMITTED);
+    }
+
+    /**
+     * Cancels the reservation and returns its stock to the product.
+     * @return null if the owner has no reservation with this id on this product
+     * @throws IllegalStateException if it was already released, expired or committed
+     */
+    public StockReservation release(String productId, String reservationId, String owner) {
+        return close(productId, reservationId, owner, StockReservation.Status.RELEASED);
+    }
+
+    /**
+     * Releases every held reservation past its expiry time
+     * @return How many were released
+     */
+    public int expireReservations() {
+        int expired = 0;
+        Date now = new Date();
+        Query due = Query.query(Criteria.where("status").is(StockReservation.Status.HELD).and("expiresAt").lte(now));
+        Update update = new Update().set("status", StockReservation.Status.EXPIRED).set("closedAt", now);
+        StockReservation reservation;
+        // One at a time, a reservation claimed here can't be committed or released concurrently
+        while ((reservation = mongoTemplate.findAndModify(due, update, StockReservation.class)) != null) {
+            adjustStock(reservation.getProductId(), reservation.getQuantity());
+            expired++;
+        }
+        if (expired > 0) {
+            log.info("Released {} expired stock reservations", expired);
+        }
+        return expired;
+    }
+
+    private StockReservation close(String productId, String reservationId, String owner, StockReservation.Status status) {
+        Criteria reservation = Criteria.where("id").is(reservationId).and("productId").is(productId).and("owner").is(owner);
+        Query held = Query.query(new Criteria().andOperator(reservation, Criteria.where("status").is(StockReservation.Status.HELD)));
+        Update update = new Update().set("status", status).set("closedAt", new Date());
+        StockReservation closed = mongoTemplate.findAndModify(held, update,
+                FindAndModifyOptions.options().returnNew(true), StockReservation.class);
+        if (closed == null) {
+            StockReservation current = mongoTemplate.findOne(Query.query(reservation), StockReservation.class);
+            if (current == null) {
+                return null;
+            }
+            throw new IllegalStateException("Reservation is already " + current.getStatus().name().toLowerCase());
+        }
+        if (status == StockReservation.Status.RELEASED) {
+            adjustStock(closed.getProductId(), closed.getQuantity());
+        }
+        return closed;
+    }
+
+    /**
+     * Adds delta (negative to take stock) in one atomic update. available becomes false when the stock
+     * reaches zero and true again when it comes back from zero, otherwise it keeps its value. Bumps the version,
+     * so a PATCH of stockQuantity made against an older read fails instead of undoing reservations.
+     * @return The product after the update, or null if it doesn't exist or has less stock than -delta
+     */
+    private Product adjustStock(String productId, int delta) {
+        Criteria criteria = Criteria.where("id").is(productId);
+        if (delta < 0) {
+            criteria = criteria.and("stockQuantity").gte(-delta);
+        }
+        ArithmeticOperators.Add newStock = ArithmeticOperators.valueOf("stockQuantity").add(delta);
+        // Both fields of one $set stage see the values from before the update
+        SetOperation set = SetOperation.set("stockQuantity").toValue(newStock)
+                .and().set("available").toValue(ConditionalOperators
+                        .when(ComparisonOperators.valueOf(newStock).lessThanEqualToValue(0)).then(false)
+                        .otherwise(ConditionalOperators
+                                .when(ComparisonOperators.valueOf("stockQuantity").lessThanEqualToValue(0)).then(true)
+                                .otherwiseValueOf("available")))
+                .and().set("version").toValue(ArithmeticOperators.valueOf(ConditionalOperators.ifNull("version").then(0L)).add(1));
+        Product product = mongoTemplate.findAndModify(Query.query(criteria), AggregationUpdate.from(List.of(set)),
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+        if (product != null) {
+            // Only the stock changed, listeners don't need to re-derive anything from the name or description
+            eventPublisher.publishEvent(ProductChangedEvent.stock(productId, product.getStockQuantity(),
+                    product.isAvailable(), product.getVersion()));
+        }
+        return product;
+    }
+}
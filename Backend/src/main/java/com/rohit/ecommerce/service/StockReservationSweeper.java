@@ -0,0 +1,32 @@
+package com.rohit.ecommerce.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives the stock of expired reservations back every app.stock.reservations.sweep-interval.
+ * Disable with app.stock.reservations.sweep-enabled=false, e.g. when no database is reachable.
+ */
+@Component
+@ConditionalOnProperty(name = "app.stock.reservations.sweep-enabled", havingValue = "true", matchIfMissing = true)
+public class StockReservationSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationSweeper.class);
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Scheduled(fixedDelayString = "${app.stock.reservations.sweep-interval:30s}")
+    public void sweep() {
+        try {
+            reservationService.expireReservations();
+        } catch (RuntimeException e) {
+            // Retried on the next run, expired reservations stay HELD until then
+            log.error("Could not release expired stock reservations", e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.rohit.ecommerce.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Image store on the local filesystem, useful for development or a mounted volume.
+ * Images are written to a temporary file first and moved into place, so readers never see a partial image.
+ */
+@Component
+@ConditionalOnProperty(name = "app.images.store", havingValue = "filesystem")
+public class FileSystemImageStore implements ImageStore {
+
+    // Ids are generated by this class, anything else is rejected so a request can't walk out of the directory
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f\\-]{36}");
+
+    private final Path directory;
+
+    public FileSystemImageStore(@Value("${app.images.dir:./data/images}") String directory) {
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create image directory " + this.directory, e);
+        }
+    }
+
+    @Override
+    public String store(InputStream content, String filename, String contentType) throws IOException {
+        String id = UUID.randomUUID().toString();
+        Path tmp = Files.createTempFile(directory, id, ".tmp");
+        try {
+            Files.copy(content, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, directory.resolve(id), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return id;
+    }
+
+    @Override
+    public StoredImage load(String imageId) throws IOException {
+        if (imageId == null || !ID_PATTERN.matcher(imageId).matches()) {
+            return null;
+        }
+        Path file = directory.resolve(imageId);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        return new StoredImage(imageId, Files.size(file), () -> Files.newInputStream(file));
+    }
+
+    @Override
+    public void delete(String imageId) {
+        if (imageId == null || !ID_PATTERN.matcher(imageId).matches()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(imageId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.rohit.ecommerce.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+/**
+ * Default image store, keeps images in the GridFS bucket of the same MongoDB database.
+ * GridFS splits each image into 255 KB chunks, so neither upload nor download holds the whole image in memory.
+ */
+@Component
+@ConditionalOnProperty(name = "app.images.store", havingValue = "gridfs", matchIfMissing = true)
+public class GridFsImageStore implements ImageStore {
+
+    @Autowired
+    private GridFsTemplate gridFsTemplate;
+
+    @Override
+    public String store(InputStream content, String filename, String contentType) throws IOException {
+        ObjectId id = gridFsTemplate.store(content, filename, contentType);
+        return id.toHexString();
+    }
+
+    @Override
+    public StoredImage load(String imageId) throws IOException {
+        if (!ObjectId.isValid(imageId)) {
+            return null;
+        }
+        GridFSFile file = gridFsTemplate.findOne(byId(imageId));
+        if (file == null) {
+            return null;
+        }
+        // Each call opens a new download stream, so the image can be read more than once
+        return new StoredImage(imageId, file.getLength(), () -> gridFsTemplate.getResource(file).getInputStream());
+    }
+
+    @Override
+    public void delete(String imageId) {
+        if (ObjectId.isValid(imageId)) {
+            gridFsTemplate.delete(byId(imageId));
+        }
+    }
+
+    private Query byId(String imageId) {
+        return Query.query(Criteria.where("_id").is(new ObjectId(imageId)));
+    }
+}
@@ -0,0 +1,32 @@
+package com.rohit.ecommerce.storage;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content hashes of stored images, used as ETag and as the version in image URLs
+ */
+public final class ImageHashes {
+
+    private ImageHashes() {
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static String of(byte[] content) {
+        MessageDigest digest = newDigest();
+        digest.update(content);
+        return toHex(digest);
+    }
+}
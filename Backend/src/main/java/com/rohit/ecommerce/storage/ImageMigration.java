@@ -0,0 +1,75 @@
+package com.rohit.ecommerce.storage;
+
+import java.io.ByteArrayInputStream;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off migration for products saved before images moved to the {@link ImageStore}.
+ * Those documents still carry the image as an embedded imageData field.
+ * Enable with app.images.migrate-on-startup=true. Documents are handled one at a time,
+ * and each one is updated as soon as its image is stored, so the migration can be stopped and re-run safely.
+ */
+@Component
+@ConditionalOnProperty(name = "app.images.migrate-on-startup", havingValue = "true")
+public class ImageMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageMigration.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ImageStore imageStore;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Query legacy = Query.query(Criteria.where("imageData").exists(true));
+        legacy.fields().include("imageData", "imageName", "imageType");
+        // Small batches so only a few embedded images are on the heap at once
+        legacy.cursorBatchSize(8);
+
+        int migrated = 0;
+        try (Stream<Document> documents = mongoTemplate.stream(legacy, Document.class, "products")) {
+            for (Document doc : (Iterable<Document>) documents::iterator) {
+                migrate(doc);
+                migrated++;
+            }
+        }
+        log.info("Moved {} embedded product images to the image store", migrated);
+    }
+
+    private void migrate(Document doc) {
+        Object id = doc.get("_id");
+        Update update = new Update().unset("imageData");
+        Binary data = doc.get("imageData", Binary.class);
+        if (data != null) {
+            try {
+                String imageId = imageStore.store(new ByteArrayInputStream(data.getData()),
+                        doc.getString("imageName"), doc.getString("imageType"));
+                update.set("imageId", imageId)
+                        .set("imageHash", ImageHashes.of(data.getData()))
+                        .set("imageUploadedAt", new Date());
+            } catch (Exception e) {
+                // Leave the document untouched so the next run retries it
+                log.error("Failed to migrate image of product {}", id, e);
+                return;
+            }
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)), update, "products");
+    }
+}
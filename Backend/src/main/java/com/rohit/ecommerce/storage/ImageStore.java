@@ -0,0 +1,25 @@
+package com.rohit.ecommerce.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Storage for product image bytes, kept outside the products collection.
+ * A Product only holds the id returned by {@link #store}.
+ * The implementation is selected with the app.images.store property (gridfs or filesystem).
+ */
+public interface ImageStore {
+
+    /**
+     * Copies the stream into the store without buffering it fully in memory
+     * @return The id to keep on the Product as a reference
+     */
+    String store(InputStream content, String filename, String contentType) throws IOException;
+
+    /**
+     * @return The stored image, or null if no image exists for this id
+     */
+    StoredImage load(String imageId) throws IOException;
+
+    void delete(String imageId);
+}
@@ -0,0 +1,73 @@
+package com.rohit.ecommerce.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.InputStreamSource;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Handle to an image in the {@link ImageStore}.
+ * The bytes are only read when the stream is opened, so callers can copy it straight to the response.
+ * Every call to getInputStream opens a new stream and the length is known up front, which lets
+ * Spring MVC answer HTTP Range requests by seeking into the image.
+ */
+@Getter
+@AllArgsConstructor
+public class StoredImage extends AbstractResource {
+
+    private final String id;
+    private final long length;
+    private final InputStreamSource source;
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return source.getInputStream();
+    }
+
+    /**
+     * The same image, whose streams pass the number of bytes read to the listener as they are read.
+     * Bytes skipped to answer a Range request are not reported.
+     */
+    public StoredImage withReadListener(LongConsumer bytesRead) {
+        return new StoredImage(id, length, () -> new FilterInputStream(source.getInputStream()) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    bytesRead.accept(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException {
+                int read = super.read(buffer, offset, count);
+                if (read > 0) {
+                    bytesRead.accept(read);
+                }
+                return read;
+            }
+        });
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Stored image [" + id + "]";
+    }
+}
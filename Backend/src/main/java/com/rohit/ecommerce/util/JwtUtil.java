@@ -2,9 +2,10 @@ package com.rohit.ecommerce.util;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+
+import com.rohit.ecommerce.middleware.AuthInterceptor;
+import com.rohit.ecommerce.model.AuthPrincipal;
 import com.rohit.ecommerce.service.AuthService;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
 import jakarta.servlet.http.HttpServletRequest;
 
 @Component
@@ -19,19 +20,14 @@ public class JwtUtil {
      * @return The email of the authenticated user, or null if not found
      */
     public String getUserEmailFromToken(HttpServletRequest request) {
+        // Already verified by the AuthInterceptor for protected endpoints
+        if (request.getAttribute(AuthInterceptor.PRINCIPAL_ATTRIBUTE) instanceof AuthPrincipal principal) {
+            return principal.getEmail();
+        }
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            try {
-                Claims claims = Jwts.parser()
-                    .verifyWith(authService.getSecretKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-                return claims.getSubject();
-            } catch (Exception e) {
-                return null;
-            }
+            AuthPrincipal principal = authService.verifyToken(authHeader.substring(7));
+            return principal != null ? principal.getEmail() : null;
         }
         return null;
     }
@@ -0,0 +1,95 @@
+package com.rohit.ecommerce.util;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import org.springframework.data.domain.Sort;
+
+import com.rohit.ecommerce.model.ProductSort;
+import com.rohit.ecommerce.model.ProductSummary;
+import com.rohit.ecommerce.search.SearchHit;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Position in a keyset-paginated product listing: the sort value and id of the last product on the page.
+ * The next page starts right after that (value, id) pair, so it costs the same index seek as the first page.
+ * Clients only see the opaque base64url form produced by {@link #encode()}.
+ */
+@Data
+@AllArgsConstructor
+public class ProductCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private ProductSort sort;
+    private Sort.Direction direction;
+    private Object value; // BigDecimal, Date, String or Double (relevance) depending on the sort key, null if the product has no value
+    private String id;
+
+    public static ProductCursor after(ProductSummary last, ProductSort sort, Sort.Direction direction) {
+        return new ProductCursor(sort, direction, sortValue(last, sort), last.getId());
+    }
+
+    public static ProductCursor after(SearchHit last, ProductSort sort, Sort.Direction direction) {
+        Object value = sort == ProductSort.RELEVANCE ? last.getScore() : sortValue(last.getProduct(), sort);
+        return new ProductCursor(sort, direction, value, last.getProduct().getId());
+    }
+
+    public static Object sortValue(ProductSummary product, ProductSort sort) {
+        return switch (sort) {
+            case NAME -> product.getName();
+            case PRICE -> product.getPrice();
+            case RELEASE_DATE -> product.getReleaseDate();
+            case RELEVANCE -> throw new IllegalArgumentException("Relevance is not a product field");
+        };
+    }
+
+    public String encode() {
+        String encodedValue;
+        if (value == null) {
+            encodedValue = "";
+        } else if (value instanceof Date date) {
+            encodedValue = "=" + date.getTime();
+        } else if (value instanceof BigDecimal price) {
+            encodedValue = "=" + price.toPlainString();
+        } else {
+            encodedValue = "=" + value;
+        }
+        String raw = sort.name() + SEPARATOR + direction.name() + SEPARATOR + id + SEPARATOR + encodedValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for a different sort order
+     */
+    public static ProductCursor decode(String cursor, ProductSort sort, Sort.Direction direction) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, 4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 4 || !sort.name().equals(parts[0]) || !direction.name().equals(parts[1])) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort order");
+        }
+        Object value = null;
+        if (parts[3].startsWith("=")) {
+            String raw = parts[3].substring(1);
+            try {
+                value = switch (sort) {
+                    case NAME -> raw;
+                    case PRICE -> new BigDecimal(raw);
+                    case RELEASE_DATE -> new Date(Long.parseLong(raw));
+                    case RELEVANCE -> Double.parseDouble(raw);
+                };
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        return new ProductCursor(sort, direction, value, parts[2]);
+    }
+}
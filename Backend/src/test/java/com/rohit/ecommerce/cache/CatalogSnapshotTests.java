@@ -0,0 +1,111 @@
+package com.rohit.ecommerce.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductSummary;
+import com.rohit.ecommerce.repo.ProductRepo;
+
+class CatalogSnapshotTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final ProductRepo repo = mock(ProductRepo.class);
+	private final CatalogSnapshot snapshot = new CatalogSnapshot(objectMapper);
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(snapshot, "repo", repo);
+		ReflectionTestUtils.setField(snapshot, "maxAge", Duration.ZERO);
+		when(repo.streamAllSummaries()).thenReturn(Stream.of(summary("p2", "Tablet"), summary("p1", "Phone")));
+	}
+
+	@Test
+	void servesTheSummariesInIdOrderAndReusesTheListing() throws Exception {
+		CatalogSnapshot.Listing listing = snapshot.listing();
+
+		assertEquals(List.of("p1", "p2"), ids(listing.getJson()));
+		assertSame(listing, snapshot.listing());
+		assertSame(listing.getGzip(), listing.getGzip());
+		assertArrayEquals(listing.getJson(), gunzip(listing.getGzip()));
+		verify(repo).streamAllSummaries();
+	}
+
+	@Test
+	void patchesChangedProductsWithoutReloading() throws Exception {
+		CatalogSnapshot.Listing before = snapshot.listing();
+
+		Product product = new Product();
+		product.setId("p0");
+		product.setName("Laptop");
+		product.setPrice(new BigDecimal("999.00"));
+		snapshot.onProductChanged(ProductChangedEvent.saved(product));
+		snapshot.onProductChanged(ProductChangedEvent.deleted("p2"));
+		CatalogSnapshot.Listing after = snapshot.listing();
+
+		assertEquals(List.of("p0", "p1"), ids(after.getJson()));
+		assertEquals("Laptop", objectMapper.readTree(after.getJson()).get(0).get("name").asText());
+		assertNotEquals(before.getEtag(), after.getEtag());
+		verify(repo).streamAllSummaries();
+	}
+
+	@Test
+	void patchesTheStockOfAListedProduct() throws Exception {
+		snapshot.listing();
+
+		snapshot.onProductChanged(ProductChangedEvent.stock("p1", 0, false, 4L));
+
+		JsonNode phone = objectMapper.readTree(snapshot.listing().getJson()).get(0);
+		assertEquals("Phone", phone.get("name").asText());
+		assertEquals(0, phone.get("stockQuantity").asInt());
+		assertFalse(phone.get("available").asBoolean());
+		verify(repo, never()).findById(any());
+	}
+
+	@Test
+	void servesTheOlderListingWithinMaxAge() {
+		ReflectionTestUtils.setField(snapshot, "maxAge", Duration.ofMinutes(1));
+		CatalogSnapshot.Listing listing = snapshot.listing();
+
+		snapshot.onProductChanged(ProductChangedEvent.deleted("p1"));
+
+		assertSame(listing, snapshot.listing());
+	}
+
+	private List<String> ids(byte[] json) throws IOException {
+		return Stream.of(objectMapper.readValue(json, ProductSummary[].class)).map(ProductSummary::getId).toList();
+	}
+
+	private static byte[] gunzip(byte[] bytes) throws IOException {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readAllBytes();
+		}
+	}
+
+	private static ProductSummary summary(String id, String name) {
+		return new ProductSummary(id, name, "Acme", new BigDecimal("10.00"), "Mobile", null, true, 3, null);
+	}
+}
@@ -0,0 +1,84 @@
+package com.rohit.ecommerce.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.Product;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProductCacheTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ProductCache cache = new ProductCache(registry, 1024 * 1024, Duration.ofMinutes(1));
+
+	@Test
+	void loadsOnceUntilTheProductChanges() {
+		AtomicInteger loads = new AtomicInteger();
+		Product product = new Product();
+		product.setId("p1");
+
+		cache.get("p1", id -> { loads.incrementAndGet(); return product; });
+		cache.get("p1", id -> { loads.incrementAndGet(); return product; });
+		assertEquals(1, loads.get());
+
+		cache.onProductChanged(ProductChangedEvent.updated("p1"));
+		cache.get("p1", id -> { loads.incrementAndGet(); return product; });
+		assertEquals(2, loads.get());
+		assertEquals(1.0, registry.get("cache.gets").tag("cache", "products").tag("result", "hit").functionCounter().count());
+	}
+
+	@Test
+	void stockChangesPatchACopyInsteadOfReloading() {
+		AtomicInteger loads = new AtomicInteger();
+		Product product = new Product();
+		product.setId("p1");
+		product.setName("Phone");
+		product.setStockQuantity(5);
+		product.setAvailable(true);
+		product.setVersion(3L);
+		cache.get("p1", id -> { loads.incrementAndGet(); return product; });
+
+		cache.onProductChanged(ProductChangedEvent.stock("p1", 0, false, 5L));
+		// Published by a reservation that was written before the one above
+		cache.onProductChanged(ProductChangedEvent.stock("p1", 1, true, 4L));
+
+		Product cached = cache.get("p1", id -> { loads.incrementAndGet(); return product; });
+		assertEquals(1, loads.get());
+		assertEquals(0, cached.getStockQuantity());
+		assertFalse(cached.isAvailable());
+		assertEquals(5L, cached.getVersion());
+		assertEquals("Phone", cached.getName());
+		assertEquals(5, product.getStockQuantity());
+	}
+
+	@Test
+	void doesNotCacheMissingProducts() {
+		AtomicInteger loads = new AtomicInteger();
+
+		assertNull(cache.get("missing", id -> { loads.incrementAndGet(); return null; }));
+		assertNull(cache.get("missing", id -> { loads.incrementAndGet(); return null; }));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void productChangedWhileLoadingIsNotCached() {
+		AtomicInteger loads = new AtomicInteger();
+		Product stale = new Product();
+
+		cache.get("p1", id -> {
+			loads.incrementAndGet();
+			cache.onProductChanged(ProductChangedEvent.updated(id));
+			return stale;
+		});
+		cache.get("p1", id -> { loads.incrementAndGet(); return new Product(); });
+		assertEquals(2, loads.get());
+	}
+}
@@ -0,0 +1,117 @@
+package com.rohit.ecommerce.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.rohit.ecommerce.model.ImageRendition;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.service.AuthService;
+import com.rohit.ecommerce.service.ProductService;
+import com.rohit.ecommerce.storage.StoredImage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+@WebMvcTest(ProductController.class)
+class ProductImageTests {
+
+	private static final byte[] IMAGE = "0123456789".getBytes();
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	SimpleMeterRegistry meterRegistry;
+
+	@MockitoBean
+	ProductService service;
+
+	@MockitoBean
+	AuthService authService;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		meterRegistry.clear();
+		Product product = new Product();
+		product.setId("p1");
+		product.setImageId("img1");
+		product.setImageType("image/png");
+		product.setImageHash("abc123");
+		product.setImageUploadedAt(new Date(1700000000000L));
+		ImageRendition original = ImageRendition.original(product);
+		when(service.getProductById("p1")).thenReturn(product);
+		when(service.selectImage(product, null)).thenReturn(original);
+		when(service.loadImage(original)).thenReturn(
+				new StoredImage("img1", IMAGE.length, () -> new ByteArrayInputStream(IMAGE)));
+	}
+
+	@Test
+	void servesImageWithValidators() throws Exception {
+		mvc.perform(get("/api/product/p1/image"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "image/png"))
+				.andExpect(header().string("ETag", "\"abc123\""))
+				.andExpect(header().string("Cache-Control", "no-cache, public"))
+				.andExpect(content().bytes(IMAGE));
+
+		assertEquals(IMAGE.length, meterRegistry.get("app.images.bytes.served").tag("size", "original").counter().count());
+	}
+
+	@Test
+	void versionedUrlIsImmutable() throws Exception {
+		mvc.perform(get("/api/product/p1/image").param("v", "abc123"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"));
+	}
+
+	@Test
+	void answersNotModifiedWithoutOpeningTheImage() throws Exception {
+		mvc.perform(get("/api/product/p1/image").header("If-None-Match", "\"abc123\""))
+				.andExpect(status().isNotModified());
+
+		verify(service, never()).loadImage(any());
+	}
+
+	@Test
+	void servesByteRanges() throws Exception {
+		mvc.perform(get("/api/product/p1/image").header("Range", "bytes=2-5"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string("Content-Range", "bytes 2-5/10"))
+				.andExpect(content().bytes("2345".getBytes()));
+
+		assertEquals(4, meterRegistry.get("app.images.bytes.served").counter().count());
+	}
+
+	@TestConfiguration
+	static class Metrics {
+
+		@Bean
+		SimpleMeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+		@Bean
+		ObservationRegistry observationRegistry() {
+			return ObservationRegistry.NOOP;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.rohit.ecommerce.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.rohit.ecommerce.config.JacksonConfig;
+import com.rohit.ecommerce.model.AuthPrincipal;
+import com.rohit.ecommerce.model.ImageRendition;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductSummary;
+import com.rohit.ecommerce.service.AuthService;
+import com.rohit.ecommerce.service.ProductService;
+
+@WebMvcTest(ProductController.class)
+@Import({ JacksonConfig.class, ProductImageTests.Metrics.class })
+class ProductSerializationTests {
+
+	private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@MockitoBean
+	ProductService service;
+
+	@MockitoBean
+	AuthService authService;
+
+	@BeforeEach
+	void setUp() {
+		ProductSummary phone = new ProductSummary("p1", "Galaxy", "Samsung", new BigDecimal("799.99"), "Mobile",
+				new Date(1700000000000L), true, 5, null);
+		when(service.searchProducts("galaxy")).thenReturn(List.of(phone));
+	}
+
+	@Test
+	void jsonIsTheDefaultAndLeavesOutNulls() throws Exception {
+		mvc.perform(get("/api/products/search").param("keyword", "galaxy").accept(MediaType.ALL))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+				.andExpect(jsonPath("$[0].price").value(799.99))
+				.andExpect(jsonPath("$[0].releaseDate").value("2023-11-14"))
+				.andExpect(jsonPath("$[0].imageHash").doesNotExist());
+	}
+
+	@Test
+	void servesSmileWhenAskedFor() throws Exception {
+		byte[] body = mvc.perform(get("/api/products/search").param("keyword", "galaxy").accept(SMILE))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(SMILE))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		JsonNode product = new SmileMapper().readTree(body).get(0);
+		assertEquals("Galaxy", product.get("name").asText());
+		// Configured like the JSON mapper: formatted dates, no null fields
+		assertEquals("2023-11-14", product.get("releaseDate").asText());
+		assertFalse(product.has("imageHash"));
+	}
+
+	@Test
+	void servesCborWhenAskedFor() throws Exception {
+		byte[] body = mvc.perform(get("/api/products/search").param("keyword", "galaxy").accept(MediaType.APPLICATION_CBOR))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		assertEquals("p1", new CBORMapper().readTree(body).get(0).get("id").asText());
+	}
+
+	@Test
+	void unpagedListingFallsBackToConvertersForBinaryClients() throws Exception {
+		when(authService.verifyToken("token")).thenReturn(new AuthPrincipal("a@example.com", new Date(Long.MAX_VALUE)));
+		when(service.getProductSummaries()).thenReturn(List.of(new ProductSummary("p2", "Pixel", "Google",
+				BigDecimal.TEN, "Mobile", null, true, 1, "h")));
+
+		byte[] body = mvc.perform(get("/api/products").header("Authorization", "Bearer token").accept(SMILE))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(SMILE))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		assertEquals("Pixel", new SmileMapper().readTree(body).get(0).get("name").asText());
+	}
+
+	@Test
+	void productLeavesOutImageStoreInternals() throws Exception {
+		Product product = new Product();
+		product.setId("p1");
+		product.setName("Galaxy");
+		product.setImageId("img1");
+		product.setImageHash("abc123");
+		product.setImageRenditions(Map.of(ImageRendition.THUMBNAIL, new ImageRendition("img2", "image/jpeg", "def", new Date(), 200, 200)));
+
+		JsonNode json = objectMapper.readTree(objectMapper.writeValueAsBytes(product));
+
+		assertEquals("abc123", json.get("imageHash").asText());
+		assertFalse(json.has("imageId"));
+		assertFalse(json.has("imageRenditions"));
+		assertFalse(json.has("description"));
+		assertTrue(json.has("available"));
+	}
+}
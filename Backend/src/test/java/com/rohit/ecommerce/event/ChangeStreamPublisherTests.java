@@ -0,0 +1,158 @@
+package com.rohit.ecommerce.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.rohit.ecommerce.model.Product;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ChangeStreamPublisherTests {
+
+	@Mock
+	MongoTemplate mongoTemplate;
+
+	@Mock
+	ApplicationEventPublisher eventPublisher;
+
+	@Spy
+	MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@InjectMocks
+	ChangeStreamPublisher publisher;
+
+	@Test
+	void publishesUpdatedProductsWithTheirLookedUpDocument() {
+		when(mongoTemplate.getConverter()).thenReturn(converter());
+
+		assertTrue(publisher.dispatch(change("{ operationType: 'update', ns: { db: 'shop', coll: 'products' },"
+				+ " documentKey: { _id: { $oid: '65a1f0c2e4b0a1b2c3d4e5f6' } },"
+				+ " fullDocument: { _id: { $oid: '65a1f0c2e4b0a1b2c3d4e5f6' }, name: 'Phone', price: { $numberDecimal: '199.90' }, version: 3 } }")));
+
+		ArgumentCaptor<ProductChangedEvent> event = ArgumentCaptor.forClass(ProductChangedEvent.class);
+		verify(eventPublisher).publishEvent(event.capture());
+		Product product = event.getValue().getProduct();
+		assertEquals("65a1f0c2e4b0a1b2c3d4e5f6", event.getValue().getProductId());
+		assertEquals(ProductChangedEvent.Type.SAVED, event.getValue().getType());
+		assertEquals(new BigDecimal("199.90"), product.getPrice());
+		assertEquals(3L, product.getVersion());
+		assertEquals(1, meterRegistry.get("app.change-stream.events").tag("operation", "update").counter().count());
+	}
+
+	@Test
+	void publishesStockOnlyUpdatesAsStockChanges() {
+		when(mongoTemplate.getConverter()).thenReturn(converter());
+
+		publisher.dispatch(change("{ operationType: 'update', ns: { db: 'shop', coll: 'products' },"
+				+ " documentKey: { _id: { $oid: '65a1f0c2e4b0a1b2c3d4e5f6' } },"
+				+ " updateDescription: { updatedFields: { stockQuantity: 0, available: false, version: 4 }, removedFields: [] },"
+				+ " fullDocument: { _id: { $oid: '65a1f0c2e4b0a1b2c3d4e5f6' }, name: 'Phone', stockQuantity: 0, available: false, version: 4 } }"));
+
+		ArgumentCaptor<ProductChangedEvent> event = ArgumentCaptor.forClass(ProductChangedEvent.class);
+		verify(eventPublisher).publishEvent(event.capture());
+		assertEquals(ProductChangedEvent.Type.STOCK, event.getValue().getType());
+		assertEquals("65a1f0c2e4b0a1b2c3d4e5f6", event.getValue().getProductId());
+		assertEquals(0, event.getValue().getStockQuantity());
+		assertFalse(event.getValue().getAvailable());
+		assertEquals(4L, event.getValue().getVersion());
+		assertNull(event.getValue().getProduct());
+	}
+
+	@Test
+	void publishesDeletesAndUserChanges() {
+		publisher.dispatch(change("{ operationType: 'delete', ns: { db: 'shop', coll: 'products' },"
+				+ " documentKey: { _id: { $oid: '65a1f0c2e4b0a1b2c3d4e5f6' } } }"));
+		publisher.dispatch(change("{ operationType: 'insert', ns: { db: 'shop', coll: 'users' },"
+				+ " documentKey: { _id: { $oid: '65a1f0c2e4b0a1b2c3d4e5f7' } }, fullDocument: { email: 'a@b.c' } }"));
+		publisher.dispatch(change("{ operationType: 'delete', ns: { db: 'shop', coll: 'users' },"
+				+ " documentKey: { _id: { $oid: '65a1f0c2e4b0a1b2c3d4e5f7' } } }"));
+
+		ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+		verify(eventPublisher, times(3)).publishEvent(events.capture());
+		ProductChangedEvent deleted = (ProductChangedEvent) events.getAllValues().get(0);
+		assertEquals(ProductChangedEvent.Type.DELETED, deleted.getType());
+		assertEquals("a@b.c", ((UserChangedEvent) events.getAllValues().get(1)).getEmail());
+		assertNull(((UserChangedEvent) events.getAllValues().get(2)).getEmail());
+	}
+
+	@Test
+	void reloadsEverythingOnceTheNewStreamIsOpen() {
+		assertFalse(publisher.dispatch(change("{ operationType: 'dropDatabase', ns: { db: 'shop' } }")));
+		verify(eventPublisher, never()).publishEvent(any());
+
+		MongoDatabase database = mock(MongoDatabase.class);
+		ChangeStreamIterable<Document> changes = mock(ChangeStreamIterable.class, RETURNS_SELF);
+		MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = mock(MongoChangeStreamCursor.class);
+		when(mongoTemplate.getDb()).thenReturn(database);
+		when(database.watch(anyList(), eq(Document.class))).thenReturn(changes);
+		when(changes.cursor()).thenReturn(cursor);
+		publisher.follow();
+
+		InOrder order = inOrder(changes, cursor, eventPublisher);
+		order.verify(changes).cursor();
+		order.verify(cursor).getResumeToken();
+		ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+		order.verify(eventPublisher, times(2)).publishEvent(events.capture());
+		assertTrue(events.getAllValues().get(0) instanceof CatalogChangedEvent);
+		assertNull(((UserChangedEvent) events.getAllValues().get(1)).getEmail());
+		verify(changes, never()).resumeAfter(any());
+	}
+
+	private static MappingMongoConverter converter() {
+		MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+		MongoMappingContext mappingContext = new MongoMappingContext();
+		mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+		MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+		converter.setCustomConversions(conversions);
+		converter.afterPropertiesSet();
+		return converter;
+	}
+
+	private static ChangeStreamDocument<Document> change(String json) {
+		BsonDocument change = BsonDocument.parse(json);
+		change.put("_id", BsonDocument.parse("{ _data: '8265A1F0C2000000012B' }"));
+		return ChangeStreamDocument.createCodec(Document.class, MongoClientSettings.getDefaultCodecRegistry())
+				.decode(new BsonDocumentReader(change), DecoderContext.builder().build());
+	}
+}
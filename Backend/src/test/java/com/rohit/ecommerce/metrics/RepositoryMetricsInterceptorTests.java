@@ -0,0 +1,79 @@
+package com.rohit.ecommerce.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.repo.ProductRepo;
+
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+class RepositoryMetricsInterceptorTests {
+
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	ProductRepo target = mock(ProductRepo.class);
+
+	ProductRepo repo;
+
+	@BeforeEach
+	void setUp() {
+		ObservationRegistry observationRegistry = ObservationRegistry.create();
+		observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+		ProxyFactory factory = new ProxyFactory(target);
+		factory.setInterfaces(ProductRepo.class);
+		factory.addAdvice(new RepositoryMetricsInterceptor("ProductRepo", observationRegistry, meterRegistry));
+		repo = (ProductRepo) factory.getProxy();
+	}
+
+	@Test
+	void timesCallsAndCountsReturnedDocuments() {
+		when(target.findByBrand("Sony")).thenReturn(List.of(new Product(), new Product()));
+		when(target.findById("p1")).thenReturn(Optional.empty());
+
+		repo.findByBrand("Sony");
+		repo.findByBrand("Sony");
+		repo.findById("p1");
+
+		assertEquals(2, meterRegistry.get(RepositoryMetricsInterceptor.CALLS)
+				.tags("repository", "ProductRepo", "method", "findByBrand").timer().count());
+		assertEquals(4, meterRegistry.get(RepositoryMetricsInterceptor.DOCUMENTS)
+				.tags("method", "findByBrand").summary().totalAmount());
+		assertEquals(0, meterRegistry.get(RepositoryMetricsInterceptor.DOCUMENTS)
+				.tags("method", "findById").summary().totalAmount());
+	}
+
+	@Test
+	void countsStreamedDocumentsWhenTheStreamIsClosed() {
+		when(target.streamAllBy()).thenReturn(Stream.of(new Product(), new Product(), new Product()));
+
+		try (Stream<Product> products = repo.streamAllBy()) {
+			assertEquals(3, products.toList().size());
+		}
+
+		assertEquals(3, meterRegistry.get(RepositoryMetricsInterceptor.DOCUMENTS)
+				.tags("method", "streamAllBy").summary().totalAmount());
+	}
+
+	@Test
+	void failedCallsAreTimedWithTheError() {
+		when(target.count()).thenThrow(new IllegalStateException("down"));
+
+		assertThrows(IllegalStateException.class, () -> repo.count());
+
+		assertEquals(1, meterRegistry.get(RepositoryMetricsInterceptor.CALLS)
+				.tags("method", "count", "error", "IllegalStateException").timer().count());
+	}
+}
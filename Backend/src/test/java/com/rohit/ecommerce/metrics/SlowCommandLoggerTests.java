@@ -0,0 +1,25 @@
+package com.rohit.ecommerce.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+class SlowCommandLoggerTests {
+
+	@Test
+	void describesTheQueryShapeWithoutValues() {
+		BsonDocument find = BsonDocument.parse("{ find: 'products', filter: { category: 'Mobile', price: { $gte: 100 },"
+				+ " _id: { $in: ['a', 'b', 'c'] } }, sort: { price: 1 }, limit: 20, $db: 'ecommerce' }");
+
+		assertEquals("find products filter={\"category\": ?, \"price\": {\"$gte\": ?}, \"_id\": {\"$in\": [?, ...]}}"
+				+ " sort={\"price\": ?}", SlowCommandLogger.describe("find", find));
+	}
+
+	@Test
+	void leavesOutDocumentsBeingWritten() {
+		BsonDocument insert = BsonDocument.parse("{ insert: 'users', documents: [{ email: 'a@b.c', password: 'x' }] }");
+
+		assertEquals("insert users", SlowCommandLogger.describe("insert", insert));
+	}
+}
@@ -0,0 +1,89 @@
+package com.rohit.ecommerce.repo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.rohit.ecommerce.model.ProductFacets;
+
+@ExtendWith(MockitoExtension.class)
+class ProductRepoImplTests {
+
+	@Mock
+	MongoTemplate mongoTemplate;
+
+	@InjectMocks
+	ProductRepoImpl repo;
+
+	@Test
+	void facetsComeFromOneAggregationAndListEveryPriceRange() {
+		Document result = Document.parse("""
+				{ total: [ { count: 4 } ],
+				  categories: [ { _id: 'Mobile', count: 3 }, { _id: null, count: 1 } ],
+				  brands: [ { _id: 'Apple', count: 4 } ],
+				  prices: [ { _id: 'below', count: 2 }, { _id: 25.0, count: 3 }, { _id: 100.0, count: 1 } ] }
+				""");
+		when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(Document.class)))
+				.thenReturn(new AggregationResults<>(List.of(result), new Document()));
+
+		ProductFacets facets = repo.findFacets(Criteria.where("category").is("Mobile"),
+				List.of(BigDecimal.TEN, new BigDecimal("25"), new BigDecimal("100")), 10);
+
+		assertEquals(4, facets.getTotal());
+		assertEquals(List.of(new ProductFacets.ValueCount("Mobile", 3)), facets.getCategories());
+		assertEquals(List.of(new ProductFacets.ValueCount("Apple", 4)), facets.getBrands());
+		assertEquals(List.of(0L, 3L, 1L), facets.getPrices().stream().map(ProductFacets.PriceRange::getCount).toList());
+		assertNull(facets.getPrices().get(2).getMax());
+
+		ArgumentCaptor<TypedAggregation<?>> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+		verify(mongoTemplate).aggregate(aggregation.capture(), eq(Document.class));
+		List<Document> pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+		assertEquals(List.of("$match", "$facet"), pipeline.stream().map(stage -> stage.keySet().iterator().next()).toList());
+	}
+
+	@Test
+	void pricesBelowTheFirstBoundaryAreNotCountedInTheLastRange() {
+		when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(Document.class))).thenReturn(new AggregationResults<>(
+				List.of(Document.parse("{ total: [], categories: [], brands: [], prices: [] }")), new Document()));
+
+		repo.findFacets(new Criteria(), List.of(BigDecimal.TEN, new BigDecimal("25")), 10);
+
+		ArgumentCaptor<TypedAggregation<?>> aggregation = ArgumentCaptor.forClass(TypedAggregation.class);
+		verify(mongoTemplate).aggregate(aggregation.capture(), eq(Document.class));
+		Document facet = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$facet", Document.class);
+		Document bucket = facet.getList("prices", Document.class).get(1).get("$bucket", Document.class);
+		assertEquals(List.of(10.0, 25.0, Double.POSITIVE_INFINITY), bucket.getList("boundaries", Object.class));
+		assertEquals(ProductRepoImpl.BELOW_PRICE_RANGES, bucket.get("default"));
+	}
+
+	@Test
+	void noMatchesGiveZeroCounts() {
+		Document result = Document.parse("{ total: [], categories: [], brands: [], prices: [] }");
+		when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(Document.class)))
+				.thenReturn(new AggregationResults<>(List.of(result), new Document()));
+
+		ProductFacets facets = repo.findFacets(new Criteria(), List.of(BigDecimal.ZERO, BigDecimal.TEN), 10);
+
+		assertEquals(0, facets.getTotal());
+		assertEquals(2, facets.getPrices().size());
+	}
+}
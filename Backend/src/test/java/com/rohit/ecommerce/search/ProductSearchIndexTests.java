@@ -0,0 +1,97 @@
+package com.rohit.ecommerce.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.repo.ProductRepo;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSearchIndexTests {
+
+	@Mock
+	ProductRepo repo;
+
+	@InjectMocks
+	ProductSearchIndex index;
+
+	@BeforeEach
+	void load() {
+		when(repo.streamAllBy()).thenReturn(Stream.of(
+				product("1", "Galaxy Phone", "Samsung", "Mobile", "Android smartphone"),
+				product("2", "iPhone", "Apple", "Mobile", "Smartphone by Apple"),
+				product("3", "MacBook Laptop", "Apple", "Laptop", "Thin and light")));
+		index.rebuild();
+	}
+
+	@Test
+	void ranksNameMatchesAboveDescriptionMatches() {
+		List<SearchHit> hits = index.search("apple");
+
+		assertEquals(List.of("2", "3"), ids(hits));
+		assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+	}
+
+	@Test
+	void matchesPrefixesAndRequiresAllTerms() {
+		assertEquals(List.of("3"), ids(index.search("lap")));
+		assertEquals(List.of("2"), ids(index.search("apple smart")));
+	}
+
+	@Test
+	void treatsKeywordAsPlainText() {
+		assertEquals(List.of(), ids(index.search(".*")));
+		assertEquals(List.of("1"), ids(index.search("Galaxy(")));
+	}
+
+	@Test
+	void appliesUpdatesAndRemovals() {
+		index.index(product("1", "Galaxy Tab", "Samsung", "Tablet", ""));
+		index.remove("3");
+
+		assertEquals(List.of(), ids(index.search("phone")));
+		assertEquals(List.of("1"), ids(index.search("tab")));
+		assertEquals(List.of(), ids(index.search("macbook")));
+	}
+
+	@Test
+	void stockAndPriceChangesKeepTheTerms() {
+		index.onProductChanged(ProductChangedEvent.stock("2", 7, true, 2L));
+		Product cheaper = product("3", "MacBook Laptop", "Apple", "Laptop", "Thin and light");
+		cheaper.setPrice(BigDecimal.ONE);
+		index.index(cheaper);
+
+		List<SearchHit> hits = index.search("apple");
+		assertEquals(List.of("2", "3"), ids(hits));
+		assertEquals(7, hits.get(0).getProduct().getStockQuantity());
+		assertEquals(BigDecimal.ONE, hits.get(1).getProduct().getPrice());
+	}
+
+	private static List<String> ids(List<SearchHit> hits) {
+		return hits.stream().map(hit -> hit.getProduct().getId()).toList();
+	}
+
+	private static Product product(String id, String name, String brand, String category, String description) {
+		Product product = new Product();
+		product.setId(id);
+		product.setName(name);
+		product.setBrand(brand);
+		product.setCategory(category);
+		product.setDescription(description);
+		product.setPrice(BigDecimal.TEN);
+		return product;
+	}
+}
@@ -0,0 +1,96 @@
+package com.rohit.ecommerce.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.repo.ProductRepo;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSuggesterTests {
+
+	@Mock
+	ProductRepo repo;
+
+	@InjectMocks
+	ProductSuggester suggester;
+
+	@BeforeEach
+	void load() {
+		ReflectionTestUtils.setField(suggester, "maxSize", 10);
+		when(repo.streamAllBy()).thenReturn(Stream.of(
+				product("1", "Galaxy S24 Ultra", "Samsung", "Mobile"),
+				product("2", "Galaxy Tab", "Samsung", "Tablet"),
+				product("3", "iPhone 15", "Apple", "Mobile"),
+				product("4", "MacBook Air", "Apple", "Laptop")));
+		suggester.rebuild();
+	}
+
+	@Test
+	void matchesTheStartOfEachWord() {
+		assertEquals(List.of("Galaxy Tab", "Galaxy S24 Ultra"), texts(suggester.suggest("gal", 10)));
+		assertEquals(List.of("Galaxy S24 Ultra"), texts(suggester.suggest("S24 u", 10)));
+		assertEquals(List.of("Galaxy S24 Ultra"), texts(suggester.suggest("ultra", 10)));
+		assertEquals(List.of(), suggester.suggest("laxy", 10));
+		assertEquals(List.of(), suggester.suggest(" ?! ", 10));
+	}
+
+	@Test
+	void suggestsBrandsAndCategoriesOnceEach() {
+		List<Suggestion> suggestions = suggester.suggest("m", 10);
+
+		// Mobile has two products, MacBook and Laptop one each
+		assertEquals(new Suggestion("Mobile", Suggestion.Type.CATEGORY, null), suggestions.get(0));
+		assertEquals(List.of("Mobile", "MacBook Air"), texts(suggestions));
+	}
+
+	@Test
+	void viewedProductsRankFirstOnceApplied() {
+		suggester.recordView("1");
+		suggester.recordView("1");
+		assertEquals("Galaxy Tab", suggester.suggest("galaxy", 10).get(0).getText());
+
+		suggester.applyViews();
+
+		assertEquals(new Suggestion("Galaxy S24 Ultra", Suggestion.Type.PRODUCT, "1"), suggester.suggest("galaxy", 10).get(0));
+		assertEquals(List.of("Galaxy S24 Ultra"), texts(suggester.suggest("galaxy", 1)));
+	}
+
+	@Test
+	void followsProductChanges() {
+		suggester.index(product("2", "Galaxy Tab S9", "Samsung", "Tablet"));
+		suggester.index(product("5", "Pixel 9", "Google", "Mobile"));
+		suggester.remove("4");
+
+		assertEquals(List.of("Galaxy Tab S9", "Galaxy S24 Ultra"), texts(suggester.suggest("galaxy", 10)));
+		assertEquals(List.of("Pixel 9"), texts(suggester.suggest("pix", 10)));
+		assertEquals(List.of(), suggester.suggest("macbook", 10));
+		// The last laptop is gone, and so is its category
+		assertEquals(List.of(), suggester.suggest("lap", 10));
+		assertEquals(List.of("Apple"), texts(suggester.suggest("app", 10)));
+	}
+
+	private static List<String> texts(List<Suggestion> suggestions) {
+		return suggestions.stream().map(Suggestion::getText).toList();
+	}
+
+	private static Product product(String id, String name, String brand, String category) {
+		Product product = new Product();
+		product.setId(id);
+		product.setName(name);
+		product.setBrand(brand);
+		product.setCategory(category);
+		return product;
+	}
+}
@@ -0,0 +1,147 @@
+package com.rohit.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rohit.ecommerce.cache.UserCache;
+import com.rohit.ecommerce.model.AuthPrincipal;
+import com.rohit.ecommerce.model.User;
+import com.rohit.ecommerce.repo.UserRepo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AuthServiceTests {
+
+	private final AuthService authService = new AuthService(1000);
+
+	private final PasswordHasher passwordHasher = new PasswordHasher(new SimpleAsyncTaskExecutor(), 4, Duration.ofSeconds(5));
+
+	private final UserRepo userRepo = mock(UserRepo.class);
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(authService, "userRepo", userRepo);
+		ReflectionTestUtils.setField(authService, "userCache", new UserCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1)));
+		ReflectionTestUtils.setField(authService, "passwordHasher", passwordHasher);
+		ReflectionTestUtils.setField(authService, "mongoTemplate", mongoTemplate);
+	}
+
+	@Test
+	void verifiesTokenOnceAndReusesThePrincipal() {
+		String token = authService.generateJwtToken("user@example.com");
+
+		AuthPrincipal first = authService.verifyToken(token);
+		AuthPrincipal second = authService.verifyToken(token);
+
+		assertEquals("user@example.com", first.getEmail());
+		assertSame(first, second);
+	}
+
+	@Test
+	void rejectsTamperedTokens() {
+		String token = authService.generateJwtToken("user@example.com");
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+		assertNull(authService.verifyToken(tampered));
+		assertFalse(authService.validateToken("not-a-token"));
+	}
+
+	@Test
+	void logsInWithTheHashedPasswordAndLooksTheUserUpOnce() {
+		when(userRepo.findByEmail("user@example.com")).thenReturn(user(passwordHasher.hash("secret")));
+
+		assertNull(authService.authenticate(login("wrong")));
+		String token = authService.authenticate(login("secret"));
+
+		assertEquals("user@example.com", authService.verifyToken(token).getEmail());
+		verify(userRepo).findByEmail("user@example.com");
+		assertNull(authService.authenticate(new User(null, null, "secret", "nobody@example.com", null)));
+	}
+
+	@Test
+	void hashesALegacyPlaintextPasswordOnLogin() {
+		when(userRepo.findByEmail("user@example.com")).thenReturn(user("secret"));
+
+		assertNull(authService.authenticate(login("wrong")));
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(User.class));
+		assertTrue(authService.authenticate(login("secret")) != null);
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(User.class));
+		assertEquals(new Document("id", "u1").append("password", "secret"), query.getValue().getQueryObject());
+		String hash = update.getValue().getUpdateObject().get("$set", Document.class).getString("password");
+		assertTrue(passwordHasher.matches("secret", hash));
+	}
+
+	@Test
+	void cacheOfSizeZeroParsesEveryTime() {
+		AuthService uncached = new AuthService(0, Runnable::run);
+		String token = uncached.generateJwtToken("user@example.com");
+
+		assertNotSame(uncached.verifyToken(token), uncached.verifyToken(token));
+	}
+
+	@Test
+	void registersWithAHashAndReportsDuplicateEmails() {
+		emailIndex(true);
+		User first = login("secret");
+		assertTrue(authService.register(first));
+		assertTrue(PasswordHasher.isHash(first.getPassword()));
+
+		when(userRepo.insert(any(User.class))).thenThrow(new DuplicateKeyException("email_unique"));
+		assertFalse(authService.register(login("secret")));
+	}
+
+	@Test
+	void refusesToRegisterWithoutTheUniqueEmailIndex() {
+		emailIndex(false);
+
+		assertThrows(IllegalStateException.class, () -> authService.register(login("secret")));
+		verify(userRepo, never()).insert(any(User.class));
+	}
+
+	private void emailIndex(boolean unique) {
+		IndexOperations indexOps = mock(IndexOperations.class);
+		when(mongoTemplate.indexOps(User.class)).thenReturn(indexOps);
+		when(indexOps.getIndexInfo()).thenReturn(List.of(IndexInfo.indexInfoOf(
+				new Document("name", "email_unique").append("key", new Document("email", 1)).append("unique", unique))));
+	}
+
+	private static User login(String password) {
+		return new User(null, null, password, "user@example.com", null);
+	}
+
+	private static User user(String password) {
+		return new User("u1", "user", password, "user@example.com", null);
+	}
+}
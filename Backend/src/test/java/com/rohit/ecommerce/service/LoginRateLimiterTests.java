@@ -0,0 +1,44 @@
+package com.rohit.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LoginRateLimiterTests {
+
+	private final AtomicLong now = new AtomicLong();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	// 3 attempts per account per minute, 5 per address per 10 seconds
+	private final LoginRateLimiter limiter = new LoginRateLimiter(meterRegistry, 3, Duration.ofMinutes(1), 5,
+			Duration.ofSeconds(10), 1000, now::get);
+
+	@Test
+	void limitsAnAccountAndRefillsOverThePeriod() {
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, limiter.tryAcquire("User@Example.com", "10.0.0." + i));
+		}
+		assertEquals(20, limiter.tryAcquire("user@example.com ", "10.0.0.9"));
+		assertEquals(0, limiter.tryAcquire("other@example.com", "10.0.0.9"));
+
+		now.addAndGet(TimeUnit.SECONDS.toNanos(20));
+		assertEquals(0, limiter.tryAcquire("user@example.com", "10.0.0.9"));
+		assertEquals(1, meterRegistry.get("app.auth.rate-limited").tag("limit", "account").counter().count());
+	}
+
+	@Test
+	void limitsAnAddressAcrossAccounts() {
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, limiter.tryAcquire(i % 2 == 0 ? null : "user" + i + "@example.com", "10.0.0.1"));
+		}
+		assertEquals(2, limiter.tryAcquire("new@example.com", "10.0.0.1"));
+		assertEquals(0, limiter.tryAcquire("new@example.com", "10.0.0.2"));
+	}
+}
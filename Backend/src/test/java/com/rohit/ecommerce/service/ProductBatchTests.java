@@ -0,0 +1,99 @@
+package com.rohit.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rohit.ecommerce.cache.ProductCache;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductBatch;
+import com.rohit.ecommerce.model.ProductSummary;
+import com.rohit.ecommerce.repo.ProductRepo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ProductBatchTests {
+
+	@Mock
+	ProductRepo repo;
+
+	@Spy
+	ProductCache productCache = new ProductCache(new SimpleMeterRegistry(), 1024 * 1024, Duration.ofMinutes(1));
+
+	@InjectMocks
+	ProductService service;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(service, "maxBatchSize", 4);
+	}
+
+	@Test
+	void loadsMissesWithOneQueryAndKeepsRequestOrder() {
+		Product cached = product("p2");
+		productCache.get("p2", id -> cached);
+		when(repo.findAllById(Set.of("p3", "p1", "gone"))).thenReturn(List.of(product("p1"), product("p3")));
+
+		ProductBatch<Product> batch = service.getProducts(List.of("p3", "p2", "gone", "p1", "p3"));
+
+		assertEquals(List.of("p3", "p2", "p1"), batch.getItems().stream().map(Product::getId).toList());
+		assertEquals(List.of("gone"), batch.getMissing());
+		assertEquals(cached, batch.getItems().get(1));
+	}
+
+	@Test
+	void secondBatchIsServedFromTheCache() {
+		when(repo.findAllById(Set.of("p1"))).thenReturn(List.of(product("p1")));
+
+		service.getProducts(List.of("p1"));
+		service.getProducts(List.of("p1"));
+
+		verify(repo).findAllById(any());
+	}
+
+	@Test
+	void summariesProjectOnlyTheProductsThatAreNotCached() {
+		productCache.get("p1", id -> product("p1"));
+		when(repo.findSummariesByIdIn(List.of("p2"))).thenReturn(List.of(ProductSummary.of(product("p2"))));
+
+		ProductBatch<ProductSummary> batch = service.getProductSummaries(List.of("p2", "p1"));
+
+		assertEquals(List.of("p2", "p1"), batch.getItems().stream().map(ProductSummary::getId).toList());
+		assertEquals(List.of(), batch.getMissing());
+	}
+
+	@Test
+	void rejectsEmptyBlankAndOversizedBatches() {
+		assertThrows(IllegalArgumentException.class, () -> service.getProducts(List.of()));
+		assertThrows(IllegalArgumentException.class, () -> service.getProducts(Arrays.asList("p1", null)));
+		assertThrows(IllegalArgumentException.class, () -> service.getProducts(List.of("p1", "p2", "p3", "p4", "p5")));
+		verify(repo, never()).findAllById(any());
+	}
+
+	private static Product product(String id) {
+		Product product = new Product();
+		product.setId(id);
+		product.setName("Product " + id);
+		product.setPrice(BigDecimal.TEN);
+		return product;
+	}
+}
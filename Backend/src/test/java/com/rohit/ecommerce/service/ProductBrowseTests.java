@@ -0,0 +1,28 @@
+package com.rohit.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ProductBrowseTests {
+
+	ProductService service = new ProductService();
+
+	@Test
+	void acceptsAscendingPriceBoundaries() {
+		service.setPriceBoundaries(List.of(BigDecimal.ZERO, new BigDecimal("25")));
+	}
+
+	@Test
+	void rejectsPriceBoundariesThatCannotFormRanges() {
+		assertThrows(IllegalStateException.class, () -> service.setPriceBoundaries(List.of()));
+		assertThrows(IllegalStateException.class, () -> service.setPriceBoundaries(List.of(BigDecimal.TEN)));
+		assertThrows(IllegalStateException.class,
+				() -> service.setPriceBoundaries(List.of(BigDecimal.ZERO, new BigDecimal("50"), new BigDecimal("25"))));
+		assertThrows(IllegalStateException.class,
+				() -> service.setPriceBoundaries(List.of(BigDecimal.TEN, new BigDecimal("10.00"))));
+	}
+}
@@ -0,0 +1,144 @@
+package com.rohit.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteResult;
+import com.rohit.ecommerce.event.CatalogChangedEvent;
+import com.rohit.ecommerce.model.BulkImportResult;
+import com.rohit.ecommerce.model.Product;
+
+@ExtendWith(MockitoExtension.class)
+class ProductBulkServiceTests {
+
+	@Mock
+	MongoTemplate mongoTemplate;
+
+	@Mock
+	BulkOperations operations;
+
+	@Mock
+	ApplicationEventPublisher eventPublisher;
+
+	@Spy
+	ObjectMapper objectMapper = new ObjectMapper();
+
+	@InjectMocks
+	ProductBulkService bulkService;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(bulkService, "batchSize", 2);
+		ReflectionTestUtils.setField(bulkService, "maxReportedErrors", 10);
+	}
+
+	@Test
+	void importsNdjsonInBatchesAndReportsBadRows() throws Exception {
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(operations);
+		when(operations.execute()).thenReturn(
+				BulkWriteResult.acknowledged(1, 1, 0, 1, List.of(), List.of()),
+				BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()));
+		String ndjson = """
+				{"name":"Phone","price":199.99,"stockQuantity":3}
+				{"id":"64b000000000000000000001","name":"Laptop","releaseDate":"2024-01-31"}
+
+				{"name":
+				{"name":"","price":5}
+				{"name":"Tablet","price":-1}
+				{"name":"Watch"}
+				""";
+
+		BulkImportResult result = bulkService.importNdjson(stream(ndjson));
+
+		assertEquals(6, result.getReceived());
+		assertEquals(2, result.getInserted());
+		assertEquals(1, result.getUpdated());
+		assertEquals(3, result.getFailed());
+		assertEquals(List.of(4L, 5L, 6L), result.getErrors().stream().map(BulkImportResult.RowError::getLine).toList());
+		assertEquals("price must not be negative", result.getErrors().get(2).getMessage());
+		verify(operations, times(2)).insert(any(Product.class));
+		verify(operations).upsert(any(Query.class), any(Update.class));
+		verify(operations, times(2)).execute();
+		verify(eventPublisher).publishEvent(any(CatalogChangedEvent.class));
+	}
+
+	@Test
+	void importsCsvByHeaderNames() throws Exception {
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(operations);
+		when(operations.execute()).thenReturn(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()));
+		String csv = """
+				price,name,available,id,colour
+				12.50,"Mouse, wireless",true,,black
+				""";
+
+		BulkImportResult result = bulkService.importCsv(stream(csv));
+
+		assertEquals(1, result.getInserted());
+		assertEquals(0, result.getFailed());
+		ArgumentCaptor<Product> inserted = ArgumentCaptor.forClass(Product.class);
+		verify(operations).insert(inserted.capture());
+		assertEquals("Mouse, wireless", inserted.getValue().getName());
+		assertEquals(new BigDecimal("12.50"), inserted.getValue().getPrice());
+		assertEquals(true, inserted.getValue().isAvailable());
+		assertNotNull(inserted.getValue().getId());
+	}
+
+	@Test
+	void nothingWrittenPublishesNoEvent() throws Exception {
+		BulkImportResult result = bulkService.importNdjson(stream("not json\n"));
+
+		assertEquals(1, result.getFailed());
+		verify(eventPublisher, never()).publishEvent(any());
+	}
+
+	@Test
+	void exportsCsvWithHeader() throws Exception {
+		Product product = new Product();
+		product.setId("1");
+		product.setName("Phone");
+		product.setPrice(new BigDecimal("9.99"));
+		product.setStockQuantity(4);
+		when(mongoTemplate.stream(any(Query.class), eq(Product.class))).thenReturn(Stream.of(product));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		bulkService.exportCsv(out);
+
+		assertEquals("""
+				id,name,description,brand,price,category,releaseDate,available,stockQuantity
+				1,Phone,,,9.99,,,false,4
+				""", out.toString(StandardCharsets.UTF_8));
+	}
+
+	private static ByteArrayInputStream stream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
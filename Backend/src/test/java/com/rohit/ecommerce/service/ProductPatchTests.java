@@ -0,0 +1,148 @@
+package com.rohit.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.repo.ProductRepo;
+
+@ExtendWith(MockitoExtension.class)
+class ProductPatchTests {
+
+	@Mock
+	ProductRepo repo;
+
+	@Mock
+	MongoTemplate mongoTemplate;
+
+	@Mock
+	ApplicationEventPublisher eventPublisher;
+
+	@Spy
+	ObjectMapper objectMapper = new ObjectMapper();
+
+	@InjectMocks
+	ProductService service;
+
+	@Test
+	void setsOnlyTheGivenFieldsAndBumpsTheVersion() {
+		Product updated = new Product();
+		updated.setId("p1");
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+				eq(Product.class))).thenReturn(updated);
+
+		assertEquals(updated, service.patchProduct("p1", Map.of("price", 19.99, "releaseDate", "2024-03-01"), 3L));
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+				eq(Product.class));
+		assertEquals(new Document("id", "p1").append("version", 3L), query.getValue().getQueryObject());
+		Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+		assertEquals(Set.of("price", "releaseDate"), set.keySet());
+		assertEquals(new BigDecimal("19.99"), set.get("price"));
+		assertEquals(new Document("version", 1L), update.getValue().getUpdateObject().get("$inc"));
+		verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
+	}
+
+	@Test
+	void versionZeroMatchesProductsWithoutVersion() {
+		service.patchProduct("p1", Map.of("stockQuantity", 4), 0L);
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class),
+				eq(Product.class));
+		assertEquals(new Document("$in", Arrays.asList(0L, null)), query.getValue().getQueryObject().get("version"));
+	}
+
+	@Test
+	void staleVersionIsAConflictAndMissingProductIsNull() {
+		when(repo.existsById("p1")).thenReturn(true);
+
+		assertThrows(OptimisticLockingFailureException.class,
+				() -> service.patchProduct("p1", Map.of("name", "Phone"), 2L));
+		assertNull(service.patchProduct("p2", Map.of("name", "Phone"), null));
+		verify(eventPublisher, never()).publishEvent(any());
+	}
+
+	@Test
+	void rejectsFieldsThatCantBePatched() {
+		Map<String, Object> clearStock = new HashMap<>();
+		clearStock.put("stockQuantity", null);
+
+		for (Map<String, Object> changes : List.of(Map.<String, Object>of(), Map.<String, Object>of("imageId", "x"),
+				Map.<String, Object>of("version", 9), clearStock, Map.<String, Object>of("price", -1),
+				Map.<String, Object>of("name", " "))) {
+			assertThrows(IllegalArgumentException.class, () -> service.patchProduct("p1", changes, null), changes.toString());
+		}
+		verifyNoInteractions(mongoTemplate);
+	}
+
+	@Test
+	void updateWithoutImageLeavesTheStoredImageFieldsAlone() throws Exception {
+		Product stored = new Product();
+		stored.setId("p1");
+		stored.setVersion(4L);
+		stored.setImageId("img");
+		stored.setImageRenditions(Map.of());
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+				eq(Product.class))).thenReturn(stored);
+		Product body = new Product();
+		body.setName("Phone");
+
+		Product saved = service.updateProduct("p1", body, null);
+
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+				eq(Product.class));
+		Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+		assertEquals(Set.of("name", "description", "brand", "price", "category", "releaseDate", "available",
+				"stockQuantity"), set.keySet());
+		assertEquals("img", saved.getImageId());
+		assertEquals(Map.of(), saved.getImageRenditions());
+		assertEquals(5L, saved.getVersion());
+		verify(repo, never()).save(any());
+		verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
+	}
+
+	@Test
+	void updateOfAMissingProductCreatesIt() throws Exception {
+		Product body = new Product();
+		body.setName("Phone");
+		when(repo.save(body)).thenReturn(body);
+
+		assertEquals(body, service.updateProduct("p1", body, null));
+		assertEquals(1L, body.getVersion());
+	}
+}
@@ -0,0 +1,165 @@
+package com.rohit.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.ProductWriteOperation;
+import com.rohit.ecommerce.repo.ProductRepo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ProductWriteQueueTests {
+
+	@Mock
+	MongoTemplate mongoTemplate;
+
+	@Mock
+	BulkOperations bulk;
+
+	@Mock
+	BulkOperations statusBulk;
+
+	@Mock
+	ProductRepo repo;
+
+	@Mock
+	ApplicationEventPublisher eventPublisher;
+
+	ProductWriteQueue queue;
+
+	@BeforeEach
+	void create() {
+		// Not started, so takeBatch hands out what is queued without waiting
+		queue = new ProductWriteQueue(mongoTemplate, repo, eventPublisher, new SimpleMeterRegistry(), true,
+				2, 10, Duration.ofMillis(200), 2, Duration.ZERO, Duration.ofMinutes(1), Duration.ofDays(1));
+	}
+
+	@Test
+	void mergesChangesToTheSameProductIntoOneUpdate() throws Exception {
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulk);
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductWriteOperation.class)).thenReturn(statusBulk);
+		when(repo.findAllById(List.of("p1"))).thenReturn(List.of(product("p1")));
+		ProductWriteOperation first = queue.submit("p1", Map.of("price", 10, "stockQuantity", 4));
+		ProductWriteOperation second = queue.submit("p1", Map.of("price", 12));
+
+		assertTrue(queue.write(queue.takeBatch()));
+
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(bulk).updateOne(any(Query.class), update.capture());
+		assertEquals(new Document("price", 12).append("stockQuantity", 4),
+				update.getValue().getUpdateObject().get("$set", Document.class));
+		verify(bulk).execute();
+		assertEquals(Map.of(first.getOperationId(), "APPLIED", second.getOperationId(), "APPLIED"), recordedStatuses());
+		verify(statusBulk).execute();
+		verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
+	}
+
+	@Test
+	void reportsProductsThatDoNotExist() throws Exception {
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulk);
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductWriteOperation.class)).thenReturn(statusBulk);
+		when(repo.findAllById(List.of("p1", "p2"))).thenReturn(List.of(product("p2")));
+		ProductWriteOperation missing = queue.submit("p1", Map.of("price", 10));
+		ProductWriteOperation found = queue.submit("p2", Map.of("price", 10));
+
+		assertTrue(queue.write(queue.takeBatch()));
+
+		assertEquals(Map.of(missing.getOperationId(), "NOT_FOUND", found.getOperationId(), "APPLIED"), recordedStatuses());
+	}
+
+	@Test
+	void storesOperationsWhenTheyAreQueued() {
+		ProductWriteOperation operation = queue.submit("p1", Map.of("price", 10));
+
+		verify(mongoTemplate).insert(operation);
+		assertEquals(ProductWriteOperation.Status.QUEUED, operation.getStatus());
+		assertTrue(operation.getExpiresAt().after(new Date()));
+	}
+
+	@Test
+	void refusesNewProductsWhenFull() {
+		queue.submit("p1", Map.of("price", 10));
+		queue.submit("p2", Map.of("price", 10));
+
+		assertThrows(RejectedExecutionException.class, () -> queue.submit("p3", Map.of("price", 10)));
+		verify(mongoTemplate, times(2)).insert(any(ProductWriteOperation.class));
+		// Merging into a queued product takes no extra room
+		queue.submit("p1", Map.of("stockQuantity", 1));
+	}
+
+	@Test
+	void retriesAFailedBatchThenGivesUp() throws Exception {
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenReturn(bulk);
+		when(bulk.execute()).thenThrow(new DataAccessResourceFailureException("down"));
+		ProductWriteOperation operation = queue.submit("p1", Map.of("price", 10));
+
+		assertFalse(queue.write(queue.takeBatch()));
+		verify(mongoTemplate, never()).bulkOps(BulkOperations.BulkMode.UNORDERED, ProductWriteOperation.class);
+
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductWriteOperation.class)).thenReturn(statusBulk);
+		assertFalse(queue.write(queue.takeBatch()));
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(statusBulk).updateMulti(any(Query.class), update.capture());
+		Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+		assertEquals(ProductWriteOperation.Status.FAILED, set.get("status"));
+		assertEquals("down", set.get("error"));
+		assertEquals(Map.of(operation.getOperationId(), "FAILED"), recordedStatuses());
+		assertTrue(queue.takeBatch().isEmpty());
+		verify(repo, never()).findAllById(anyCollection());
+	}
+
+	// Operation id to the status the last bulk update stored for it
+	private Map<String, String> recordedStatuses() {
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(statusBulk, atLeastOnce()).updateMulti(query.capture(), update.capture());
+		Map<String, String> statuses = new HashMap<>();
+		for (int i = 0; i < query.getAllValues().size(); i++) {
+			Object status = update.getAllValues().get(i).getUpdateObject().get("$set", Document.class).get("status");
+			for (String operationId : query.getAllValues().get(i).getQueryObject().get("operationId", Document.class)
+					.getList("$in", String.class)) {
+				statuses.put(operationId, status.toString());
+			}
+		}
+		return statuses;
+	}
+
+	private static Product product(String id) {
+		Product product = new Product();
+		product.setId(id);
+		return product;
+	}
+}
@@ -0,0 +1,129 @@
+package com.rohit.ecommerce.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Date;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rohit.ecommerce.event.ProductChangedEvent;
+import com.rohit.ecommerce.model.Product;
+import com.rohit.ecommerce.model.StockReservation;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceTests {
+
+	@Mock
+	MongoTemplate mongoTemplate;
+
+	@Mock
+	ApplicationEventPublisher eventPublisher;
+
+	@InjectMocks
+	StockReservationService reservationService;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(reservationService, "ttl", Duration.ofMinutes(15));
+		ReflectionTestUtils.setField(reservationService, "maxQuantity", 10);
+	}
+
+	@Test
+	void reserveTakesStockConditionallyAndHoldsIt() {
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(Product.class))).thenReturn(product("p1", 3));
+		when(mongoTemplate.insert(any(StockReservation.class))).thenAnswer(call -> call.getArgument(0));
+
+		StockReservation reservation = reservationService.reserve("p1", 2, "a@b.c");
+
+		assertEquals(StockReservation.Status.HELD, reservation.getStatus());
+		assertEquals("a@b.c", reservation.getOwner());
+		assertEquals(Duration.ofMinutes(15).toMillis(),
+				reservation.getExpiresAt().getTime() - reservation.getCreatedAt().getTime());
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).findAndModify(query.capture(), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(Product.class));
+		assertEquals(2, query.getValue().getQueryObject().get("stockQuantity", Document.class).get("$gte"));
+		verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
+	}
+
+	@Test
+	void reserveFailsWithoutEnoughStock() {
+		when(mongoTemplate.findById("p1", Product.class)).thenReturn(product("p1", 1));
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> reservationService.reserve("p1", 2, "a@b.c"));
+
+		assertEquals("Only 1 left in stock", e.getMessage());
+		verify(mongoTemplate, never()).insert(any(StockReservation.class));
+		verify(eventPublisher, never()).publishEvent(any());
+	}
+
+	@Test
+	void reserveRejectsBadQuantitiesAndUnknownProducts() {
+		assertThrows(IllegalArgumentException.class, () -> reservationService.reserve("p1", 0, "a@b.c"));
+		assertThrows(IllegalArgumentException.class, () -> reservationService.reserve("p1", 11, "a@b.c"));
+		assertNull(reservationService.reserve("missing", 1, "a@b.c"));
+	}
+
+	@Test
+	void releaseGivesStockBackOnce() {
+		StockReservation released = reservation(StockReservation.Status.RELEASED);
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+				eq(StockReservation.class))).thenReturn(released, (StockReservation) null);
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(Product.class))).thenReturn(product("p1", 5));
+		when(mongoTemplate.findOne(any(Query.class), eq(StockReservation.class))).thenReturn(released);
+
+		assertEquals(released, reservationService.release("p1", "r1", "a@b.c"));
+		IllegalStateException e = assertThrows(IllegalStateException.class,
+				() -> reservationService.release("p1", "r1", "a@b.c"));
+
+		assertEquals("Reservation is already released", e.getMessage());
+		verify(mongoTemplate).findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(Product.class));
+	}
+
+	@Test
+	void commitKeepsStockTaken() {
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+				eq(StockReservation.class))).thenReturn(reservation(StockReservation.Status.COMMITTED));
+
+		assertEquals(StockReservation.Status.COMMITTED, reservationService.commit("p1", "r1", "a@b.c").getStatus());
+		verify(mongoTemplate, never()).findAndModify(any(Query.class), any(UpdateDefinition.class),
+				any(FindAndModifyOptions.class), eq(Product.class));
+	}
+
+	private static Product product(String id, int stock) {
+		Product product = new Product();
+		product.setId(id);
+		product.setStockQuantity(stock);
+		product.setAvailable(stock > 0);
+		return product;
+	}
+
+	private static StockReservation reservation(StockReservation.Status status) {
+		return new StockReservation("r1", "p1", 2, "a@b.c", status, new Date(), new Date(), new Date());
+	}
+}
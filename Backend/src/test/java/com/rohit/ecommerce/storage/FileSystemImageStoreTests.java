@@ -0,0 +1,43 @@
+package com.rohit.ecommerce.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileSystemImageStoreTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void storesAndStreamsImage() throws Exception {
+		FileSystemImageStore store = new FileSystemImageStore(dir.toString());
+		byte[] bytes = { 1, 2, 3, 4, 5 };
+
+		String id = store.store(new ByteArrayInputStream(bytes), "a.png", "image/png");
+		StoredImage image = store.load(id);
+
+		assertEquals(bytes.length, image.getLength());
+		try (InputStream in = image.getInputStream()) {
+			assertArrayEquals(bytes, in.readAllBytes());
+		}
+
+		store.delete(id);
+		assertNull(store.load(id));
+	}
+
+	@Test
+	void rejectsIdsOutsideTheStore() throws Exception {
+		FileSystemImageStore store = new FileSystemImageStore(dir.toString());
+
+		assertNull(store.load("../application.properties"));
+		assertNull(store.load(null));
+	}
+}
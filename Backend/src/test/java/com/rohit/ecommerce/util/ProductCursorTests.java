@@ -0,0 +1,69 @@
+package com.rohit.ecommerce.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import com.rohit.ecommerce.model.ProductSort;
+import com.rohit.ecommerce.model.ProductSummary;
+import com.rohit.ecommerce.search.SearchHit;
+
+class ProductCursorTests {
+
+	@Test
+	void roundTripsEachSortKey() {
+		ProductSummary last = summary("Phone", new BigDecimal("199.90"), new Date(1700000000000L));
+
+		for (ProductSort sort : List.of(ProductSort.NAME, ProductSort.PRICE, ProductSort.RELEASE_DATE)) {
+			String encoded = ProductCursor.after(last, sort, Sort.Direction.DESC).encode();
+			ProductCursor decoded = ProductCursor.decode(encoded, sort, Sort.Direction.DESC);
+
+			assertEquals(ProductCursor.after(last, sort, Sort.Direction.DESC), decoded);
+		}
+	}
+
+	@Test
+	void roundTripsRelevanceScore() {
+		ProductSummary last = summary("Phone", null, null);
+		SearchHit hit = new SearchHit(last, 4.5);
+
+		String encoded = ProductCursor.after(hit, ProductSort.RELEVANCE, Sort.Direction.DESC).encode();
+
+		assertEquals(4.5, ProductCursor.decode(encoded, ProductSort.RELEVANCE, Sort.Direction.DESC).getValue());
+	}
+
+	@Test
+	void keepsNullSortValues() {
+		ProductSummary last = summary("Phone", null, null);
+
+		String encoded = ProductCursor.after(last, ProductSort.PRICE, Sort.Direction.ASC).encode();
+
+		assertNull(ProductCursor.decode(encoded, ProductSort.PRICE, Sort.Direction.ASC).getValue());
+	}
+
+	@Test
+	void rejectsCursorOfAnotherSortOrder() {
+		ProductSummary last = summary("Phone", BigDecimal.ONE, null);
+		String encoded = ProductCursor.after(last, ProductSort.PRICE, Sort.Direction.ASC).encode();
+
+		assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(encoded, ProductSort.NAME, Sort.Direction.ASC));
+		assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(encoded, ProductSort.PRICE, Sort.Direction.DESC));
+		assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode("not a cursor!", ProductSort.PRICE, Sort.Direction.ASC));
+	}
+
+	private static ProductSummary summary(String name, BigDecimal price, Date releaseDate) {
+		ProductSummary summary = new ProductSummary();
+		summary.setId("64b000000000000000000001");
+		summary.setName(name);
+		summary.setPrice(price);
+		summary.setReleaseDate(releaseDate);
+		return summary;
+	}
+}
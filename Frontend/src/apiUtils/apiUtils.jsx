@@ -151,6 +151,19 @@ export const apiUtils = {
         throw error;
       }
     },
+
+    // Typeahead suggestions (product names, brands, categories) for a partly typed search
+    suggestProducts: async (prefix) => {
+      try {
+        const response = await API.get("/products/suggest", {
+          params: { q: prefix },
+        });
+        return response.data;
+      } catch (error) {
+        console.error(`Error fetching suggestions for "${prefix}":`, error);
+        throw error;
+      }
+    },
   },
 
   // Authentication related API calls
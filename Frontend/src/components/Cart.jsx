@@ -24,16 +24,21 @@ const Cart = () => {
           return;
         }
 
-        // Get all products to validate cart items exist
-        const response = await axios.get(`${BACKEND_URL}/api/products`, {
-          headers: {
-            Authorization: `Bearer ${localStorage.getItem("token")}`,
-          },
-        });
-        const backendProductIds = response.data.map((product) => product.id);
+        // Look up just the cart's products in one request to drop the ones that no longer exist
+        const response = await axios.post(
+          `${BACKEND_URL}/api/products/batch`,
+          { ids: cart.map((item) => item.id) },
+          {
+            params: { view: "summary" },
+            headers: {
+              Authorization: `Bearer ${localStorage.getItem("token")}`,
+            },
+          }
+        );
+        const missingIds = response.data.missing;
 
-        const updatedCartItems = cart.filter((item) =>
-          backendProductIds.includes(item.id)
+        const updatedCartItems = cart.filter(
+          (item) => !missingIds.includes(item.id)
         );
 
         const cartItemsWithImages = await Promise.all(
@@ -1,4 +1,4 @@
-import React, { useEffect, useState } from "react";
+import React, { useEffect, useRef, useState } from "react";
 import { useNavigate } from "react-router-dom";
 import Home from "./Home";
 import apiUtils from "../apiUtils/apiUtils";
@@ -19,7 +19,7 @@ const Navbar = ({ onSelectCategory, onSearch }) => {
   const [noResults, setNoResults] = useState(false);
   const [searchFocused, setSearchFocused] = useState(false);
   const [showSearchResults, setShowSearchResults] = useState(false);
-  const [allProducts, setAllProducts] = useState([]);
+  const latestInput = useRef("");
   const [isLoggedIn, setIsLoggedIn] = useState(false);
 
   // Function to check if user is logged in
@@ -64,28 +64,23 @@ const Navbar = ({ onSelectCategory, onSearch }) => {
     };
   }, []);
 
-  useEffect(() => {
-    const fetchData = async () => {
+  const handleChange = async (value) => {
+    setInput(value);
+    latestInput.current = value;
+    if (value.trim().length >= 1) {
+      setShowSearchResults(true);
       try {
-        const products = await apiUtils.products.getAllProducts();
-        setAllProducts(products);
-        setSearchResults(products);
+        const suggestions = await apiUtils.products.suggestProducts(value);
+        // Answers to earlier keystrokes may arrive after later ones
+        if (latestInput.current !== value) {
+          return;
+        }
+        setSearchResults(suggestions);
+        setNoResults(suggestions.length === 0);
       } catch (error) {
-        console.error("Error fetching data:", error);
+        setSearchResults([]);
+        setNoResults(true);
       }
-    };
-    fetchData();
-  }, []);
-
-  const handleChange = (value) => {
-    setInput(value);
-    if (value.length >= 1) {
-      setShowSearchResults(true);
-      const filtered = allProducts.filter((product) =>
-        product.name.toLowerCase().includes(value.toLowerCase())
-      );
-      setSearchResults(filtered);
-      setNoResults(filtered.length === 0);
     } else {
       setShowSearchResults(false);
       setSearchResults([]);
@@ -97,6 +92,20 @@ const Navbar = ({ onSelectCategory, onSearch }) => {
     setSelectedCategory(category);
     onSelectCategory(category);
   };
+
+  // Products open their page, categories filter the listing, brands complete the search box
+  const handleSuggestionClick = (event, suggestion) => {
+    if (suggestion.type === "PRODUCT") {
+      return;
+    }
+    event.preventDefault();
+    if (suggestion.type === "CATEGORY") {
+      handleCategorySelect(suggestion.text);
+      handleChange("");
+    } else {
+      handleChange(suggestion.text + " ");
+    }
+  };
   const toggleTheme = () => {
     const newTheme = theme === "dark-theme" ? "light-theme" : "dark-theme";
     setTheme(newTheme);
@@ -253,12 +262,25 @@ const Navbar = ({ onSelectCategory, onSearch }) => {
                   <ul className="list-group">
                     {searchResults.length > 0
                       ? searchResults.map((result) => (
-                          <li key={result.id} className="list-group-item">
+                          <li
+                            key={`${result.type}-${result.productId || result.text}`}
+                            className="list-group-item"
+                          >
                             <a
-                              href={`/product/${result.id}`}
+                              href={
+                                result.type === "PRODUCT"
+                                  ? `/product/${result.productId}`
+                                  : "#"
+                              }
                               className="search-result-link"
+                              onClick={(e) => handleSuggestionClick(e, result)}
                             >
-                              <span>{result.name}</span>
+                              <span>{result.text}</span>
+                              {result.type !== "PRODUCT" && (
+                                <small className="text-muted ms-2">
+                                  {result.type === "BRAND" ? "brand" : "category"}
+                                </small>
+                              )}
                             </a>
                           </li>
                         ))